@@ -0,0 +1,144 @@
+package io.github.s4gh.navigator;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.util.List;
+import javax.swing.AbstractListModel;
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+import javax.swing.UIManager;
+
+/**
+ * Flat list of search results, used instead of the tree while a query is active.
+ *
+ * Results are rows over the cached model; updating them is a swap of the backing
+ * list. Rows have a fixed height and are painted by one reusable renderer that
+ * draws icon, member and a dimmed "in Outer.Inner" label directly, so nothing is
+ * allocated per row.
+ */
+final class FlatResultList extends JList<JavaTreeBuilder.Match> {
+
+    private final Model model = new Model();
+
+    FlatResultList() {
+        setModel(model);
+        setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        Renderer renderer = new Renderer();
+        setCellRenderer(renderer);
+        setFixedCellHeight(renderer.rowHeight(this));
+        setFixedCellWidth(1); // rows span the list width, no per-row measuring
+    }
+
+    void setMatches(List<JavaTreeBuilder.Match> matches) {
+        model.setMatches(matches);
+        if (!matches.isEmpty()) {
+            setSelectedIndex(0);
+            ensureIndexIsVisible(0);
+        }
+    }
+
+    private static final class Model extends AbstractListModel<JavaTreeBuilder.Match> {
+        private List<JavaTreeBuilder.Match> matches = List.of();
+
+        void setMatches(List<JavaTreeBuilder.Match> newMatches) {
+            int oldSize = matches.size();
+            matches = newMatches;
+            int newSize = newMatches.size();
+            if (oldSize > newSize) {
+                fireIntervalRemoved(this, newSize, oldSize - 1);
+            } else if (newSize > oldSize) {
+                fireIntervalAdded(this, oldSize, newSize - 1);
+            }
+            if (Math.min(oldSize, newSize) > 0) {
+                fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return matches.size();
+        }
+
+        @Override
+        public JavaTreeBuilder.Match getElementAt(int index) {
+            return matches.get(index);
+        }
+    }
+
+    private static final class Renderer extends JComponent implements ListCellRenderer<JavaTreeBuilder.Match> {
+        private static final int GAP = 4;
+        private static final Insets PAD = new Insets(1, 4, 1, 4);
+
+        private Icon icon;
+        private String text;
+        private String owner;
+        private Color dimmed;
+
+        Renderer() {
+            setOpaque(true);
+        }
+
+        int rowHeight(JList<?> list) {
+            FontMetrics fm = list.getFontMetrics(list.getFont());
+            return Math.max(16, fm.getHeight()) + PAD.top + PAD.bottom;
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends JavaTreeBuilder.Match> list,
+                JavaTreeBuilder.Match value, int index, boolean isSelected, boolean cellHasFocus) {
+            JavaTreeBuilder.NodeData data = value.data;
+            icon = JavaIcons.iconFor(data.handle.getKind(), data.modifiers);
+            text = data.display;
+            owner = value.owner;
+            setFont(list.getFont());
+            setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+            setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+            Color disabled = UIManager.getColor("Label.disabledForeground");
+            dimmed = isSelected || disabled == null ? getForeground() : disabled;
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+
+            int x = PAD.left;
+            if (icon != null) {
+                icon.paintIcon(this, g, x, (getHeight() - icon.getIconHeight()) / 2);
+                x += icon.getIconWidth() + GAP;
+            }
+            g.setFont(getFont());
+            FontMetrics fm = g.getFontMetrics();
+            int baseline = (getHeight() - fm.getHeight()) / 2 + fm.getAscent();
+            g.setColor(getForeground());
+            g.drawString(text, x, baseline);
+            if (owner != null) {
+                x += fm.stringWidth(text) + GAP * 2;
+                g.setColor(dimmed);
+                g.drawString("in ", x, baseline);
+                g.drawString(owner, x + fm.stringWidth("in "), baseline);
+            }
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(1, 16 + PAD.top + PAD.bottom);
+        }
+
+        // the usual renderer no-ops: this component is only stamped, never laid out
+        @Override public void invalidate() { }
+        @Override public void validate() { }
+        @Override public void revalidate() { }
+        @Override public void repaint(long tm, int x, int y, int width, int height) { }
+        @Override public void repaint() { }
+        @Override protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) { }
+    }
+}
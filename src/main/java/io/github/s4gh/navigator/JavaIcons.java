@@ -0,0 +1,193 @@
+package io.github.s4gh.navigator;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import org.openide.util.ImageUtilities;
+
+/**
+ * Icon registry shared by all navigator nodes.
+ *
+ * The table is indexed by icon slot (derived from {@link ElementKind}) x static x
+ * visibility and is filled once, on first use. Every SVG is loaded and rasterized
+ * a single time at the screen scale that is current at that moment, so rendering
+ * rows never builds resource paths or touches the SVG loader.
+ */
+final class JavaIcons {
+
+    private static final String DEFAULT_ICON = "icons/defaultNode.svg";
+
+    // icon slots; type kinds have a single variant, members have static x visibility
+    private static final int RECORD = 0;
+    private static final int CLASS = 1;
+    private static final int INTERFACE = 2;
+    private static final int ENUM = 3;
+    private static final int METHOD = 4;
+    private static final int CONSTRUCTOR = 5;
+    private static final int FIELD = 6;
+    private static final int DEFAULT = 7;
+    private static final int SLOTS = 8;
+
+    private static final String[] BASES = {
+        "icons/record", "icons/class", "icons/interface", "icons/enum",
+        "icons/method", "icons/constructor", "icons/field", "icons/defaultNode"
+    };
+
+    // visibility index: 0 package, 1 public, 2 protected, 3 private
+    private static final String[] VISIBILITY = {"", "Public", "Protected", "Private"};
+
+    private static final Image[] TABLE = buildTable();
+    private static final Icon[] ICONS = new Icon[TABLE.length];
+
+    private JavaIcons() {}
+
+    static Image imageFor(ElementKind kind, Set<Modifier> modifiers) {
+        return TABLE[indexFor(kind, modifiers)];
+    }
+
+    /** Same entries as {@link #imageFor}, wrapped once for Swing renderers (EDT only). */
+    static Icon iconFor(ElementKind kind, Set<Modifier> modifiers) {
+        int i = indexFor(kind, modifiers);
+        Icon icon = ICONS[i];
+        if (icon == null) {
+            icon = ICONS[i] = new ImageIcon(TABLE[i]);
+        }
+        return icon;
+    }
+
+    private static int indexFor(ElementKind kind, Set<Modifier> modifiers) {
+        int slot = slotOf(kind);
+        if (slot < METHOD || slot == DEFAULT) {
+            return index(slot, false, 0);
+        }
+        return index(slot, modifiers.contains(Modifier.STATIC), visibilityOf(modifiers));
+    }
+
+    private static int slotOf(ElementKind kind) {
+        return switch (kind) {
+            case RECORD -> RECORD;
+            case CLASS, ANNOTATION_TYPE -> CLASS;
+            case INTERFACE -> INTERFACE;
+            case ENUM -> ENUM;
+            case METHOD -> METHOD;
+            case CONSTRUCTOR -> CONSTRUCTOR;
+            case FIELD, ENUM_CONSTANT -> FIELD;
+            default -> DEFAULT;
+        };
+    }
+
+    private static int visibilityOf(Set<Modifier> modifiers) {
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return 1;
+        } else if (modifiers.contains(Modifier.PROTECTED)) {
+            return 2;
+        } else if (modifiers.contains(Modifier.PRIVATE)) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static int index(int slot, boolean isStatic, int visibility) {
+        return (slot * 2 + (isStatic ? 1 : 0)) * VISIBILITY.length + visibility;
+    }
+
+    private static Image[] buildTable() {
+        double scale = screenScale();
+        Map<String, Image> rasterized = new HashMap<>();
+        Image[] table = new Image[SLOTS * 2 * VISIBILITY.length];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            for (int s = 0; s < 2; s++) {
+                for (int v = 0; v < VISIBILITY.length; v++) {
+                    String path = resolvePath(slot, s == 1, v);
+                    table[index(slot, s == 1, v)] = rasterized.computeIfAbsent(path, p -> rasterize(p, scale));
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Not every kind/static/visibility combination has its own SVG, so pick the
+     * closest existing variant once instead of failing per node.
+     */
+    private static String resolvePath(int slot, boolean isStatic, int visibility) {
+        String base = BASES[slot];
+        if (slot < METHOD || slot == DEFAULT) {
+            return exists(base + ".svg") ? base + ".svg" : DEFAULT_ICON;
+        }
+        String st = isStatic ? "Static" : "";
+        String vis = VISIBILITY[visibility];
+        String[] candidates = {
+            base + st + vis + ".svg",
+            base + st + (visibility == 0 ? "Package" : vis) + ".svg",
+            base + vis + ".svg",
+            base + "Package.svg",
+            base + ".svg"
+        };
+        for (String c : candidates) {
+            if (exists(c)) {
+                return c;
+            }
+        }
+        return DEFAULT_ICON;
+    }
+
+    private static boolean exists(String path) {
+        return JavaIcons.class.getClassLoader().getResource(path) != null;
+    }
+
+    private static Image rasterize(String path, double scale) {
+        Image source = ImageUtilities.loadImage(path);
+        if (source == null) {
+            source = ImageUtilities.loadImage(DEFAULT_ICON);
+        }
+        int w = source.getWidth(null);
+        int h = source.getHeight(null);
+        if (w <= 0 || h <= 0) {
+            return source;
+        }
+        BufferedImage base = paint(source, w, h, 1.0);
+        if (scale == 1.0) {
+            return base;
+        }
+        BufferedImage hi = paint(source, w, h, scale);
+        return new BaseMultiResolutionImage(base, hi);
+    }
+
+    private static BufferedImage paint(Image source, int w, int h, double scale) {
+        BufferedImage img = new BufferedImage(
+                (int) Math.ceil(w * scale), (int) Math.ceil(h * scale), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.scale(scale, scale);
+            g.drawImage(source, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    private static double screenScale() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return 1.0;
+        }
+        AffineTransform tx = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice()
+                .getDefaultConfiguration()
+                .getDefaultTransform();
+        return Math.max(tx.getScaleX(), tx.getScaleY());
+    }
+}
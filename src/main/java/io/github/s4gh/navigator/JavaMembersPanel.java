@@ -1,12 +1,23 @@
 package io.github.s4gh.navigator;
 
 import java.awt.BorderLayout;
+import java.awt.CardLayout;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
 
 import org.netbeans.api.editor.EditorRegistry;
 import org.netbeans.api.java.source.JavaSource;
@@ -14,13 +25,13 @@ import org.openide.explorer.ExplorerManager;
 import org.openide.explorer.view.OutlineView;
 import org.openide.filesystems.FileObject;
 import org.openide.util.RequestProcessor;
+import org.openide.util.WeakListeners;
 import javax.swing.BorderFactory;
 import org.netbeans.modules.editor.NbEditorUtilities;
 
 
 import java.awt.event.KeyEvent;
 import java.beans.PropertyVetoException;
-import java.util.Locale;
 import javax.swing.KeyStroke;
 import org.openide.nodes.Node;
 
@@ -30,14 +41,36 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
     private final JTextField searchField = new JTextField();
     private volatile boolean includeInherited = false;
     private final JCheckBox inheritedCheck = new JCheckBox("Show inherited (Ctrl+Alt+F)", includeInherited);
+    private volatile boolean hierarchyMode = false;
+    private final JCheckBox hierarchyCheck = new JCheckBox("Hierarchy", hierarchyMode);
+    private volatile boolean flatMode = true;
+    private final JCheckBox flatCheck = new JCheckBox("Flat results", flatMode);
     private final ExplorerManager explorer = new ExplorerManager();
     private final OutlineView outline = new OutlineView("Members");
+    private final FlatResultList flatList = new FlatResultList();
+    private final CardLayout cards = new CardLayout();
+    private final JPanel center = new JPanel(cards);
+    private boolean flatShown = false;
     private final RequestProcessor RP = new RequestProcessor(JavaMembersPanel.class);
     private final AtomicReference<FileObject> currentFile = new AtomicReference<>();
 
     private volatile String currentFilter = "";
+    private boolean restoring = false;
+    /** Last published result, kept for {@link NavigatorSession}; EDT only. */
+    private NavigatorSession lastResult;
 
     private final JavaTreeBuilder builder = new JavaTreeBuilder();
+    private final SourcePreview preview = new SourcePreview();
+
+    /** Caret of the editor the dialog was opened over; read on the EDT only. */
+    private volatile int caretOffset = -1;
+    private SubtypeIndex subtypeIndex;
+    private ChangeListener weakSubtypeIndexListener;
+    private final ChangeListener subtypeIndexListener = e -> {
+        if (hierarchyMode) {
+            rebuildModelDebounced();
+        }
+    };
 
     private final ClosePopupAction closePopupAction;
     
@@ -45,8 +78,141 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
         super(new BorderLayout());
         this.closePopupAction = closePopupAction;
         initUI();
+        captureCaretOffset();
         hookEditorChanges();
-        rebuildModelDebounced();
+        NavigationHistory.get().ensureLoaded();
+        if (!restoreSession()) {
+            rebuildModelDebounced();
+        }
+    }
+
+    /**
+     * Restores query and options the dialog had when it was last closed on the
+     * active document. The result itself is shown synchronously and revalidated
+     * in the background if the document changed since or inherited members, which
+     * other files declare, are shown.
+     *
+     * @return {@code false} if there is no result to restore and one must be built
+     */
+    private boolean restoreSession() {
+        FileObject fo = findActiveJavaFile();
+        Document doc = fo == null ? null : JavaTreeBuilder.openDocument(fo);
+        NavigatorSession s = NavigatorSession.get(doc);
+        if (s == null) {
+            return false;
+        }
+        includeInherited = s.includeInherited;
+        inheritedCheck.setSelected(s.includeInherited);
+        flatMode = s.flatMode;
+        flatCheck.setSelected(s.flatMode);
+        hierarchyMode = s.hierarchyMode;
+        hierarchyCheck.setSelected(s.hierarchyMode);
+        restoring = true;
+        try {
+            searchField.setText(s.query);
+        } finally {
+            restoring = false;
+        }
+        currentFilter = s.query;
+        if (!s.hasResult() || !s.version.isOf(doc)) {
+            return false;
+        }
+        currentFile.set(fo);
+        lastResult = s;
+
+        if (s.matches != null) {
+            flatList.setMatches(s.matches);
+            for (int i = 0; i < s.matches.size(); i++) {
+                JavaTreeBuilder.Match m = s.matches.get(i);
+                if (m.data.key.equals(s.selectedKey)) {
+                    flatList.setSelectedIndex(i);
+                    flatList.ensureIndexIsVisible(i);
+                    break;
+                }
+            }
+            showCard(true);
+        } else {
+            showCard(false);
+            Node root = JavaTreeBuilder.rootFor(fo, s.topNodes, s.recent);
+            explorer.setRootContext(root);
+            if (s.expandedKeys == null) {
+                expandRecursively(root, RenderBudget.maxRows());
+            } else {
+                outline.expandNode(root);
+                expandKeys(root, s.expandedKeys);
+            }
+            if (s.selectedKey != null) {
+                visitExpanded(root, n -> {
+                    if (n instanceof JavaNodes.ElementNode && s.selectedKey.equals(keyOf((JavaNodes.ElementNode) n))) {
+                        try {
+                            explorer.setSelectedNodes(new Node[]{n});
+                        } catch (PropertyVetoException ignore) {
+                        }
+                    }
+                });
+            }
+        }
+
+        RP.post(() -> {
+            if (s.includeInherited || !s.version.isCurrent(doc)) {
+                rebuildModel(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stores query, options, result, selection and expansion for the next dialog
+     * on this document. When no restorable result is shown, only query and options
+     * are kept, so an older result is never brought back.
+     */
+    void rememberState() {
+        FileObject fo = currentFile.get();
+        Document doc = fo == null ? null : JavaTreeBuilder.openDocument(fo);
+        if (doc == null) {
+            return;
+        }
+        NavigatorSession s = lastResult;
+        if (s == null) {
+            NavigatorSession.put(doc, NavigatorSession.optionsOnly(currentFilter, includeInherited,
+                    flatMode, hierarchyMode));
+            return;
+        }
+        s.selectedKey = null;
+        if (flatShown) {
+            JavaTreeBuilder.Match m = flatList.getSelectedValue();
+            if (m != null) {
+                s.selectedKey = m.data.key;
+            }
+        } else {
+            Node[] selected = explorer.getSelectedNodes();
+            if (selected.length > 0 && selected[0] instanceof JavaNodes.ElementNode) {
+                s.selectedKey = keyOf((JavaNodes.ElementNode) selected[0]);
+            }
+            Set<String> expanded = new HashSet<>();
+            visitExpanded(explorer.getRootContext(), n -> {
+                if (n instanceof JavaNodes.ElementNode && !n.isLeaf() && outline.isExpanded(n)) {
+                    expanded.add(keyOf((JavaNodes.ElementNode) n));
+                }
+            });
+            s.expandedKeys = expanded;
+        }
+        NavigatorSession.put(doc, s);
+    }
+
+    private static String keyOf(JavaNodes.ElementNode n) {
+        return n.getData().key;
+    }
+
+    private void expandKeys(Node n, Set<String> keys) {
+        for (Node ch : n.getChildren().getNodes()) {
+            // groups such as "Recent" are always open
+            if (!ch.isLeaf() && (!(ch instanceof JavaNodes.ElementNode)
+                    || keys.contains(keyOf((JavaNodes.ElementNode) ch)))) {
+                outline.expandNode(ch);
+                expandKeys(ch, keys);
+            }
+        }
     }
 
     private void initUI() {
@@ -60,6 +226,8 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
         top.add(left, BorderLayout.CENTER);
 
         JPanel right = new JPanel(new FlowLayout(FlowLayout.LEADING, 8, 0));
+        right.add(flatCheck);
+        right.add(hierarchyCheck);
         right.add(inheritedCheck);
         top.add(right, BorderLayout.EAST);
 
@@ -76,7 +244,16 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
 
         // One wide column (tree column)
         outline.setPropertyColumns(); // just the tree
-        add(outline, BorderLayout.CENTER);
+        center.add(outline, "tree");
+
+        // Flat results, shown instead of the tree while a query is active
+        center.add(new JScrollPane(flatList), "flat");
+
+        // Source of the selected member, next to the results
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, center, preview);
+        split.setResizeWeight(0.5);
+        split.setBorder(null);
+        add(split, BorderLayout.CENTER);
 
         // Events
         searchField.getDocument().addDocumentListener(new DocumentListener() {
@@ -98,6 +275,16 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
             includeInherited = inheritedCheck.isSelected();
             rebuildModelDebounced();
         });
+
+        hierarchyCheck.addActionListener(e -> {
+            hierarchyMode = hierarchyCheck.isSelected();
+            rebuildModelDebounced();
+        });
+
+        flatCheck.addActionListener(e -> {
+            flatMode = flatCheck.isSelected();
+            rebuildModelDebounced();
+        });
         
         JavaNodes.closePopupAction = this.closePopupAction;
 
@@ -110,19 +297,82 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
                 JavaNodes.invokePreferredAction(explorer.getSelectedNodes());
             }
         });
+
+        flatList.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke("ENTER"), "open-selected");
+        flatList.getActionMap().put("open-selected", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) {
+                openSelectedMatch();
+            }
+        });
+        explorer.addPropertyChangeListener(evt -> {
+            if (ExplorerManager.PROP_SELECTED_NODES.equals(evt.getPropertyName()) && !flatShown) {
+                updatePreview();
+            }
+        });
+        flatList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && flatShown) {
+                updatePreview();
+            }
+        });
+
+        flatList.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e)) {
+                    openSelectedMatch();
+                }
+            }
+        });
+    }
+
+    private void openSelectedMatch() {
+        JavaTreeBuilder.Match m = flatList.getSelectedValue();
+        FileObject fo = currentFile.get();
+        if (m != null && fo != null) {
+            JavaNodes.open(fo, m.data);
+        }
+    }
+
+    private void showCard(boolean flat) {
+        flatShown = flat;
+        cards.show(center, flat ? "flat" : "tree");
+        updatePreview();
+    }
+
+    /** Shows the selected row of the visible view in the preview; EDT only. */
+    private void updatePreview() {
+        FileObject fo = currentFile.get();
+        if (flatShown) {
+            JavaTreeBuilder.Match m = flatList.getSelectedValue();
+            preview.show(fo, m == null ? null : m.data);
+            return;
+        }
+        Node[] selected = explorer.getSelectedNodes();
+        if (selected.length > 0 && selected[0] instanceof JavaNodes.ElementNode) {
+            preview.show(fo, ((JavaNodes.ElementNode) selected[0]).getData());
+        } else {
+            preview.show(fo, null);
+        }
     }
 
     private void onFilterChanged() {
+        if (restoring) {
+            return;
+        }
         currentFilter = searchField.getText() == null ? "" : searchField.getText().trim();
         rebuildModelDebounced();
     }
 
     private void hookEditorChanges() {
         EditorRegistry.addPropertyChangeListener(evt -> {
+            JTextComponent last = EditorRegistry.lastFocusedComponent();
+            if (last != null && !showsFile(last)) {
+                return; // e.g. the source preview, which registers through its editor kit
+            }
             switch (evt.getPropertyName()) {
                 case EditorRegistry.FOCUS_GAINED_PROPERTY:
                 case EditorRegistry.LAST_FOCUSED_REMOVED_PROPERTY:
                 case EditorRegistry.FOCUSED_DOCUMENT_PROPERTY:
+                    captureCaretOffset();
                     rebuildModelDebounced();
                     break;
             }
@@ -130,10 +380,14 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
     }
 
     private void rebuildModelDebounced() {
-        RP.post(this::rebuildModel, 150); // small debounce for typing and editor switches
+        RP.post(() -> rebuildModel(true), 150); // small debounce for typing and editor switches
     }
 
-    private void rebuildModel() {
+    /**
+     * @param showLoading whether to replace what is shown with a loading node
+     *        while building; {@code false} when revalidating a restored result
+     */
+    private void rebuildModel(boolean showLoading) {
         SwingUtilities.invokeLater(() -> {
             FileObject fo = findActiveJavaFile();
             currentFile.set(fo);
@@ -141,39 +395,113 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
                 explorer.setRootContext(JavaNodes.emptyRoot("No Java file focused"));
                 return;
             }
-            explorer.setRootContext(JavaNodes.loadingRoot("Loading…"));
+            if (showLoading) {
+                explorer.setRootContext(JavaNodes.loadingRoot("Loading…"));
+            }
         });
 
         FileObject fo = findActiveJavaFile();
         if (fo == null || JavaSource.forFileObject(fo) == null) {
             return;
         }
+        // taken before building, so a result built from an older text never looks current
+        final MemberModel.Version version = MemberModel.versionOf(JavaTreeBuilder.openDocument(fo));
+        final String filter = currentFilter;
+        final boolean inherited = includeInherited;
+        final boolean flat = flatMode;
+        final boolean hierarchy = hierarchyMode;
 
         try {
-            JavaTreeBuilder.RootAndHandles result = builder.buildForFile(
-                    fo,
-                    includeInherited,
-                    currentFilter);
+            if (flat && !hierarchy && !filter.isEmpty()) {
+                // flat results need no nodes: ranked rows over the cached model
+                List<JavaTreeBuilder.Match> matches = builder.flatMatches(
+                        fo, inherited, filter, NavigationHistory.get().scores(fo));
+                SwingUtilities.invokeLater(() -> {
+                    flatList.setMatches(matches);
+                    showCard(true);
+                    lastResult = new NavigatorSession(filter, inherited, flat, hierarchy, null, List.of(),
+                            matches, version);
+                });
+                return;
+            }
+
+            Map<String, Double> frecency = hierarchy ? Map.of() : NavigationHistory.get().scores(fo);
+            JavaTreeBuilder.RootAndHandles result = hierarchy
+                    ? builder.buildHierarchy(
+                            fo,
+                            caretOffset,
+                            inherited,
+                            filter,
+                            subtypeIndexFor(fo))
+                    : builder.buildForFile(
+                            fo,
+                            inherited,
+                            filter,
+                            frecency);
+
 
             // If filter produced matches, keep enclosing classes; builder handles that.
             SwingUtilities.invokeLater(() -> {
                 var root = result.root();
+                showCard(false);
                 explorer.setRootContext(root);
-                expandAllAsync();
+                expandAllAsync(frecency);
+                lastResult = hierarchy || result.topNodes() == null || version == null ? null
+                        : new NavigatorSession(filter, inherited, flat, hierarchy, result.topNodes(),
+                                result.recent(), null, version);
             });
 
         } catch (Exception ex) {
-            SwingUtilities.invokeLater(() -> explorer.setRootContext(
-                    JavaNodes.errorRoot("Error: " + ex.getMessage())));
+            SwingUtilities.invokeLater(() -> {
+                explorer.setRootContext(JavaNodes.errorRoot("Error: " + ex.getMessage()));
+                lastResult = null;
+            });
         }
     }
 
     private FileObject findActiveJavaFile() {
-        javax.swing.text.JTextComponent comp = EditorRegistry.lastFocusedComponent();
-        if (comp == null) return null;
-        javax.swing.text.Document doc = comp.getDocument();
-        if (doc == null) return null;
-        return NbEditorUtilities.getFileObject(doc);
+        JTextComponent comp = activeEditor();
+        return comp == null ? null : NbEditorUtilities.getFileObject(comp.getDocument());
+    }
+
+    /**
+     * Most recently focused editor showing a file. Editor panes without one, like
+     * the source preview, are registered too, but must not become the navigated file.
+     */
+    private static JTextComponent activeEditor() {
+        for (JTextComponent comp : EditorRegistry.componentList()) {
+            if (showsFile(comp)) {
+                return comp;
+            }
+        }
+        return null;
+    }
+
+    private static boolean showsFile(JTextComponent comp) {
+        Document doc = comp.getDocument();
+        return doc != null && NbEditorUtilities.getFileObject(doc) != null;
+    }
+
+    /** Remembers the editor caret for hierarchy builds, which run off the EDT. */
+    private void captureCaretOffset() {
+        JTextComponent comp = activeEditor();
+        caretOffset = comp == null ? -1 : comp.getCaretPosition();
+    }
+
+    /** Subtype index of the file's source roots; refreshes the view once it is (re)built. */
+    private synchronized SubtypeIndex subtypeIndexFor(FileObject fo) {
+        SubtypeIndex index = SubtypeIndex.forFile(fo);
+        if (index != subtypeIndex) {
+            if (subtypeIndex != null) {
+                subtypeIndex.removeChangeListener(weakSubtypeIndexListener);
+            }
+            if (index != null) {
+                weakSubtypeIndexListener = WeakListeners.change(subtypeIndexListener, index);
+                index.addChangeListener(weakSubtypeIndexListener);
+            }
+            subtypeIndex = index;
+        }
+        return index;
     }
 
     @Override
@@ -181,30 +509,90 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
         return explorer;
     }
     
-    private void expandAllAsync() {
+    private void expandAllAsync(Map<String, Double> frecency) {
         SwingUtilities.invokeLater(() -> {
             Node root = explorer.getRootContext();
             if (root != null) {
-                expandRecursively(root);
+                long start = System.nanoTime();
+                int rows = expandRecursively(root, RenderBudget.maxRows());
+                RenderBudget.record(rows, System.nanoTime() - start);
+                preselectFrecent(root, frecency);
+            }
+        });
+    }
+
+    /** Selects the most frequently/recently opened member among the expanded rows. */
+    private void preselectFrecent(Node root, Map<String, Double> frecency) {
+        if (frecency.isEmpty()) {
+            return;
+        }
+        Node[] best = {null};
+        double[] bestScore = {0};
+        visitExpanded(root, n -> {
+            if (n instanceof JavaNodes.ElementNode) {
+                JavaNodes.ElementNode en = (JavaNodes.ElementNode) n;
+                double s = frecency.getOrDefault(en.getData().key, 0.0);
+                if (s >= JavaTreeBuilder.FRECENT && s > bestScore[0]) {
+                    best[0] = n;
+                    bestScore[0] = s;
+                }
             }
         });
+        if (best[0] != null) {
+            try {
+                explorer.setSelectedNodes(new Node[]{best[0]});
+            } catch (PropertyVetoException ignore) {
+            }
+        }
+    }
+
+    private void visitExpanded(Node n, Consumer<Node> visitor) {
+        for (Node ch : n.getChildren().getNodes()) {
+            visitor.accept(ch);
+            if (!ch.isLeaf() && outline.isExpanded(ch)) {
+                visitExpanded(ch, visitor);
+            }
+        }
     }
 
-    private void expandRecursively(Node n) {
+    /**
+     * Expands the subtree while at most {@code budget} rows are materialized;
+     * deeper groups stay collapsed and can be opened by the user. A node is only
+     * expanded if the budget left covers a full page of its children, so nested
+     * groups cannot overshoot it.
+     *
+     * @return number of rows materialized
+     */
+    private int expandRecursively(Node n, int budget) {
         // expand current node
         outline.expandNode(n);  // OutlineView convenience method
+        Node[] children = n.getChildren().getNodes(true);
+        int rows = children.length;
         // recurse
-        for (Node ch : n.getChildren().getNodes(true)) {
-            expandRecursively(ch);
+        int page = RenderBudget.pageSize() + 1; // one page plus its "more" node
+        for (Node ch : children) {
+            if (budget - rows < page) {
+                break;
+            }
+            if (!ch.isLeaf()) {
+                rows += expandRecursively(ch, budget - rows);
+            }
         }
+        return rows;
     }
     
     /**
      * Jump to the first node whose display name contains the current filter.
      */
     private void jumpToFirstMatch() {
-        final String q = (searchField.getText() == null ? "" : searchField.getText().trim())
-                .toLowerCase(Locale.ROOT);
+        if (flatShown) {
+            if (flatList.getModel().getSize() > 0) {
+                flatList.setSelectedIndex(0);
+                flatList.requestFocusInWindow();
+            }
+            return;
+        }
+        final MemberQuery q = MemberQuery.parse(searchField.getText());
 
         Node root = explorer.getRootContext();
         if (root == null) {
@@ -224,15 +612,15 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
     }
 
     /**
-     * Preorder traversal in view order; returns first node whose display name
-     * contains q.
+     * Preorder traversal in view order; returns first element node that
+     * satisfies q.
      */
-    private Node findFirstMatch(Node node, String q) {
+    private Node findFirstMatch(Node node, MemberQuery q) {
         if (node == null) {
             return null;
         }
-        String dn = node.getDisplayName();
-        if (!q.isEmpty() && dn != null && dn.toLowerCase(Locale.ROOT).contains(q)) {
+        if (!q.isEmpty() && node instanceof JavaNodes.ElementNode
+                && q.matches(((JavaNodes.ElementNode) node).getData())) {
             return node;
         }
         for (Node ch : node.getChildren().getNodes(true)) {
@@ -281,7 +669,7 @@ public class JavaMembersPanel extends JPanel implements ExplorerManager.Provider
         boolean newSelectdValue = !isSelected;
         inheritedCheck.setSelected(newSelectdValue);
         includeInherited = newSelectdValue;
-        rebuildModel();
+        rebuildModel(true);
     }
     
     public void focusSearchField() {
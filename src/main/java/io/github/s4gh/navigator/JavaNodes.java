@@ -1,19 +1,18 @@
 package io.github.s4gh.navigator;
 
+import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.util.List;
+import java.util.Map;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 
 
 import java.io.IOException;
-import java.util.Set;
 import javax.lang.model.element.Element;
 
 import org.netbeans.api.java.source.ui.ElementOpen;
 import org.netbeans.api.java.source.ElementHandle;
-import javax.lang.model.element.ElementKind;
-import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import org.netbeans.api.java.source.JavaSource;
 import org.netbeans.api.java.source.SourceUtils;
@@ -49,6 +48,17 @@ final class JavaNodes {
         return new RootNode(fo, nodes, rootName);
     }
 
+    /** Root with one child per group; each group lists its own element nodes. */
+    static Node fromGroups(FileObject fo, Map<String, List<JavaTreeBuilder.NodeData>> groups, String rootName) {
+        Children.Array children = new Children.Array();
+        for (Map.Entry<String, List<JavaTreeBuilder.NodeData>> g : groups.entrySet()) {
+            children.add(new Node[] { new RootNode(fo, g.getValue(), g.getKey()) });
+        }
+        AbstractNode root = new AbstractNode(children);
+        root.setDisplayName(rootName);
+        return root;
+    }
+
     private static final class RootNode extends AbstractNode {
         RootNode(FileObject fo, List<JavaTreeBuilder.NodeData> list, String name) {
 //            super(Children.create(new NodeChildrenFactory(fo, list), true));
@@ -60,19 +70,66 @@ final class JavaNodes {
         }
     }
 
-    private static final class NodeChildrenFactory extends ChildFactory<JavaTreeBuilder.NodeData> {
+    /**
+     * Creates at most one page of element nodes per group; the remainder is
+     * represented by a single {@link MoreNode} that loads the next page on demand.
+     */
+    private static final class NodeChildrenFactory extends ChildFactory<Object> {
         private final FileObject fo;
         private final List<JavaTreeBuilder.NodeData> data;
+        private int limit = RenderBudget.pageSize();
         NodeChildrenFactory(FileObject fo, List<JavaTreeBuilder.NodeData> data) {
             this.fo = fo;
             this.data = data;
         }
-        @Override protected boolean createKeys(List<JavaTreeBuilder.NodeData> toPopulate) {
-            toPopulate.addAll(data);
+        @Override protected boolean createKeys(List<Object> toPopulate) {
+            if (data.size() <= limit) {
+                toPopulate.addAll(data);
+            } else {
+                toPopulate.addAll(data.subList(0, limit));
+                toPopulate.add(new MoreKey(data.size() - limit));
+            }
             return true;
         }
-        @Override protected Node createNodeForKey(JavaTreeBuilder.NodeData key) {
-            return new ElementNode(fo, key);
+        @Override protected Node createNodeForKey(Object key) {
+            if (key instanceof MoreKey more) {
+                return new MoreNode(this, more.remaining);
+            }
+            return new ElementNode(fo, (JavaTreeBuilder.NodeData) key);
+        }
+        void showMore() {
+            limit += RenderBudget.pageSize();
+            refresh(false);
+        }
+    }
+
+    private static final class MoreKey {
+        final int remaining;
+        MoreKey(int remaining) { this.remaining = remaining; }
+    }
+
+    /** Paging placeholder; its preferred action reveals the next page of its group. */
+    static final class MoreNode extends AbstractNode {
+        private final NodeChildrenFactory factory;
+
+        MoreNode(NodeChildrenFactory factory, int remaining) {
+            super(Children.LEAF);
+            this.factory = factory;
+            setDisplayName(remaining + " more…");
+        }
+
+        @Override
+        public Action getPreferredAction() {
+            return new AbstractAction() {
+                @Override public void actionPerformed(ActionEvent e) {
+                    factory.showMore();
+                }
+            };
+        }
+
+        @Override
+        public Action[] getActions(boolean context) {
+            return new Action[] { getPreferredAction() };
         }
     }
 
@@ -91,18 +148,27 @@ final class JavaNodes {
             this.data = data;
 
             setDisplayName(data.display);
-            setIconBaseWithExtension(iconFor(data.handle.getKind(), data.modifiers));
+        }
+
+        JavaTreeBuilder.NodeData getData() {
+            return data;
+        }
+
+        @Override
+        public Image getIcon(int type) {
+            return JavaIcons.imageFor(data.handle.getKind(), data.modifiers);
+        }
+
+        @Override
+        public Image getOpenedIcon(int type) {
+            return getIcon(type);
         }
 
         @Override
         public Action getPreferredAction() {
             return new AbstractAction() {
                 @Override public void actionPerformed(ActionEvent e) {
-                    openElement();                    
-                    if (closePopupAction != null) {
-                        closePopupAction.invoke();
-                    }
-
+                    open(file, data);
                 }
             };
         }
@@ -111,72 +177,52 @@ final class JavaNodes {
         public Action[] getActions(boolean context) {
             return new Action[] { getPreferredAction() };
         }
+    }
 
-        private void openElement() {
-            JavaSource js = JavaSource.forFileObject(file);
-            if (js == null) {
-                return;
-            }
+    /**
+     * Opens the element in the editor, records the jump in the navigation history
+     * and closes the popup; shared by the tree and the flat list.
+     */
+    static void open(FileObject file, JavaTreeBuilder.NodeData data) {
+        NavigationHistory.get().record(file, data.key);
+        openElement(file, data);
+        if (closePopupAction != null) {
+            closePopupAction.invoke();
+        }
+    }
 
-            try {
-                js.runUserActionTask(cc -> {
-                    try {
-                        cc.toPhase(JavaSource.Phase.ELEMENTS_RESOLVED);
-                        Element el = data.handle.resolve(cc);
-                        if (el == null) {
-                            return;
-                        }
+    private static void openElement(FileObject file, JavaTreeBuilder.NodeData data) {
+        JavaSource js = JavaSource.forFileObject(file);
+        if (js == null) {
+            return;
+        }
 
-                        Element enclosing = el.getEnclosingElement();
-                        if (enclosing instanceof TypeElement) {
-                            FileObject declaringFile = SourceUtils.getFile(ElementHandle.create((TypeElement) enclosing), cc.getClasspathInfo());
-                            if (declaringFile != null) {
-                                ElementOpen.open(declaringFile, ElementHandle.create(el));
-                            }
-                        }
-                    } catch (IOException ex) {
-                        // Handle IOException from SourceUtils.getFile or ElementOpen.open
-                        ex.printStackTrace(); // or use Logger to log the error
+        try {
+            js.runUserActionTask(cc -> {
+                try {
+                    cc.toPhase(JavaSource.Phase.ELEMENTS_RESOLVED);
+                    Element el = data.handle.resolve(cc);
+                    if (el == null) {
+                        return;
                     }
-                }, true);
-            } catch (IOException ex) {
-                // Handle IOException from runUserActionTask
-                ex.printStackTrace(); // or use Logger to log the error
-            }
-        }
-    }
 
-    private static String iconFor(ElementKind kind, Set<Modifier> modifiers) {
-        String additionalQulifiers = getStaticQualifier(modifiers) + getVisibilityQualifier(modifiers);
-        return switch (kind) {
-            case RECORD        -> "icons/record.svg";
-            case CLASS         -> "icons/class.svg";
-            case INTERFACE     -> "icons/interface.svg";
-            case ENUM          -> "icons/enum.svg";
-            case ANNOTATION_TYPE -> "icons/class.svg";
-            case METHOD        -> "icons/method" + additionalQulifiers + ".svg";
-            case CONSTRUCTOR   -> "icons/constructor"+ additionalQulifiers + ".svg";
-            case FIELD, ENUM_CONSTANT -> "icons/field" + additionalQulifiers + ".svg";
-            default            -> "icons/defaultNode.svg";
-        };
-    }
-    
-    private static String getStaticQualifier(Set<Modifier> modifiers){
-        if (modifiers.contains(Modifier.STATIC)) {
-            return "Static";
+                    // outermost type also covers top-level types, which have no enclosing type
+                    TypeElement outermost = SourceUtils.getOutermostEnclosingTypeElement(el);
+                    if (outermost != null) {
+                        FileObject declaringFile = SourceUtils.getFile(ElementHandle.create(outermost), cc.getClasspathInfo());
+                        if (declaringFile != null) {
+                            ElementOpen.open(declaringFile, ElementHandle.create(el));
+                        }
+                    }
+                } catch (IOException ex) {
+                    // Handle IOException from SourceUtils.getFile or ElementOpen.open
+                    ex.printStackTrace(); // or use Logger to log the error
+                }
+            }, true);
+        } catch (IOException ex) {
+            // Handle IOException from runUserActionTask
+            ex.printStackTrace(); // or use Logger to log the error
         }
-        return "";
-    }
-    
-    private static String getVisibilityQualifier(Set<Modifier> modifiers){
-        if (modifiers.contains(Modifier.PUBLIC)) {
-            return "Public";
-        } else if (modifiers.contains(Modifier.PROTECTED)) {
-            return "Protected";
-        } else if (modifiers.contains(Modifier.PRIVATE)) {
-            return "Private";
-        }
-        return "";
     }
 
     /** Trigger preferred action on selected nodes (Enter key). */
@@ -1,268 +1,507 @@
 package io.github.s4gh.navigator;
 
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
 import com.sun.source.util.Trees;
 import java.util.*;
-import java.util.stream.Collectors;
 import javax.lang.model.element.*;
-import javax.lang.model.util.Elements;
-import javax.lang.model.util.Types;
 
 import javax.lang.model.type.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Position;
 
 import org.netbeans.api.java.source.*;
+import org.openide.cookies.EditorCookie;
 import org.openide.filesystems.FileObject;
+import org.openide.loaders.DataObject;
+import org.openide.loaders.DataObjectNotFoundException;
 
 final class JavaTreeBuilder {
 
-    static final class NodeData {
-        final String display;
+    /**
+     * One entry of the member tree. Entries are shared: the same instance may be a
+     * child of several types (inherited members, nested types) and of the cached
+     * model, so nodes are never modified once built; filtering copies instead.
+     */
+    static final class NodeData extends OutlineCore.Entry<NodeData> {
         final ElementHandle<?> handle;
-        final List<NodeData> children = new ArrayList<>();
-        final Set<Modifier> modifiers;
-
-        NodeData(String display, ElementHandle<?> handle, Set<Modifier> modifiers) {
-            this.display = display;
+        /** {@link NavigationHistory#memberKey} of the element, the same wherever it is listed. */
+        final String key;
+        /** Declaration span in the open document; {@code null} when declared elsewhere. */
+        Position start;
+        Position end;
+        /** Start of the method body, used to recognize edits that cannot change the outline. */
+        Position bodyStart;
+
+        NodeData(String display, ElementHandle<?> handle, String key, Set<Modifier> modifiers) {
+            super(display, handle.getKind(), modifiers);
             this.handle = handle;
-            this.modifiers = modifiers;
+            this.key = key;
+        }
+
+        @Override
+        NodeData withChildren(List<NodeData> newChildren) {
+            NodeData copy = new NodeData(display, handle, key, modifiers);
+            copy.start = start;
+            copy.end = end;
+            copy.bodyStart = bodyStart;
+            copy.children.addAll(newChildren);
+            return copy;
+        }
+    }
+
+    /** One row of the flat result list: a matching entry and its enclosing type. */
+    static final class Match {
+        final NodeData data;
+        /** Display name of the enclosing type, {@code null} for top-level types. */
+        final String owner;
+        final int rank;
+        /** Decayed navigation history score, see {@link NavigationHistory}. */
+        final double frecency;
+
+        Match(NodeData data, String owner, int rank, double frecency) {
+            this.data = data;
+            this.owner = owner;
+            this.rank = rank;
+            this.frecency = frecency;
+        }
+
+        /** Visited often or recently enough to be listed before better text matches. */
+        boolean isFrecent() {
+            return frecency >= FRECENT;
         }
     }
 
     static final class RootAndHandles {
         private final org.openide.nodes.Node root;
-        RootAndHandles(org.openide.nodes.Node root) { this.root = root; }
+        private final List<NodeData> topNodes;
+        private final List<NodeData> recent;
+        RootAndHandles(org.openide.nodes.Node root) { this(root, null, List.of()); }
+        RootAndHandles(org.openide.nodes.Node root, List<NodeData> topNodes, List<NodeData> recent) {
+            this.root = root;
+            this.topNodes = topNodes;
+            this.recent = recent;
+        }
         org.openide.nodes.Node root() { return root; }
+        /** Filtered member tree behind {@link #root()}, {@code null} for message roots. */
+        List<NodeData> topNodes() { return topNodes; }
+        /** Frecent members listed above the tree, empty if none. */
+        List<NodeData> recent() { return recent; }
     }
 
-    RootAndHandles buildForFile(FileObject fo, boolean includeInherited, String filter) throws Exception {
+    /** Most rows of the "Recent" group listed above the tree when there is no query. */
+    private static final int MAX_RECENT = 10;
+
+    /**
+     * Builds the member tree of {@code fo} filtered by {@code filter}. Without a
+     * query, members that are frecent by {@code frecency} are also listed in a
+     * "Recent" group above the tree, best first.
+     */
+    RootAndHandles buildForFile(FileObject fo, boolean includeInherited, String filter,
+            Map<String, Double> frecency) throws Exception {
         JavaSource js = JavaSource.forFileObject(fo);
         if (js == null) {
             return new RootAndHandles(JavaNodes.errorRoot("Not a Java file"));
         }
 
-        final List<NodeData> topNodes = new ArrayList<>();
+        List<NodeData> model = buildModel(fo, js, includeInherited);
 
-        js.runUserActionTask((CompilationController cc) -> {
-            cc.toPhase(JavaSource.Phase.ELEMENTS_RESOLVED);
-            Elements elements = cc.getElements();
-            Types types = cc.getTypes();
-            Trees trees = cc.getTrees();
-
-            List<? extends TypeElement> topLevelTypes = cc.getTopLevelElements();
-            Set<ElementHandle<?>> visited = new HashSet<>();
-            
-            for (TypeElement type : topLevelTypes) {
-                NodeData typeNode = buildTypeNode(cc, type, includeInherited, visited);
-                topNodes.add(typeNode);
-            }
-
-            // Apply filter
-            String q = (filter == null) ? "" : filter.trim().toLowerCase(Locale.ROOT);
-            if (!q.isEmpty()) {
-                Iterator<NodeData> it = topNodes.iterator();
-                while (it.hasNext()) {
-                    NodeData n = it.next();
-                    if (!keepWithDescendants(n, q)) {
-                        it.remove();
-                    }
-                }
+        // Apply filter; the model may be cached, so matches are copies
+        MemberQuery q = MemberQuery.parse(filter);
+        final List<NodeData> topNodes = new ArrayList<>();
+        for (NodeData n : model) {
+            NodeData kept = q.isEmpty() ? n : OutlineCore.filtered(n, q);
+            if (kept != null) {
+                topNodes.add(kept);
             }
+        }
 
-        }, true); // read-only
+        List<NodeData> recent = q.isEmpty() ? frecent(model, frecency) : List.of();
+        return new RootAndHandles(rootFor(fo, topNodes, recent), topNodes, recent);
+    }
 
+    /** Root node over an already filtered member tree and its "Recent" group. */
+    static org.openide.nodes.Node rootFor(FileObject fo, List<NodeData> topNodes, List<NodeData> recent) {
         if (topNodes.isEmpty()) {
-            return new RootAndHandles(JavaNodes.emptyRoot("No matches"));
+            return JavaNodes.emptyRoot("No matches");
         }
-
-        org.openide.nodes.Node root = JavaNodes.fromNodeDataList(fo, topNodes, "Classes");
-        return new RootAndHandles(root);
+        if (recent.isEmpty()) {
+            return JavaNodes.fromNodeDataList(fo, topNodes, "Classes");
+        }
+        Map<String, List<NodeData>> groups = new LinkedHashMap<>();
+        groups.put("Recent", recent);
+        groups.put("Classes", topNodes);
+        return JavaNodes.fromGroups(fo, groups, "Classes");
     }
 
-    
-private NodeData buildTypeNode(CompilationInfo info, TypeElement type, 
-        boolean includeInherited, Set<ElementHandle<?>> visited) {
-    
-        ElementHandle<TypeElement> handle = ElementHandle.create(type);
-        if (visited.contains(handle)) {
-            return new NodeData(simpleTypeName(type) + " (recursive)", handle, type.getModifiers());
+    /** Members of {@code model} scoring at least {@link #FRECENT}, best first. */
+    private static List<NodeData> frecent(List<NodeData> model, Map<String, Double> frecency) {
+        if (frecency.isEmpty()) {
+            return List.of();
         }
-        visited.add(handle);
-        
-        String typeName = simpleTypeName(type); // e.g. Outer.Inner
-        NodeData typeNode = new NodeData(typeName, ElementHandle.create(type), type.getModifiers());
-
-
-        List<? extends Element> members = includeInherited
-                ? info.getElements().getAllMembers(type)
-                : type.getEnclosedElements();
+        Map<NodeData, Double> found = new IdentityHashMap<>();
+        collectFrecent(model, frecency, found);
+        List<NodeData> result = new ArrayList<>(found.keySet());
+        result.sort(Comparator.comparingDouble((NodeData n) -> -found.get(n))
+                .thenComparing(n -> n.displayLower));
+        return result.size() > MAX_RECENT ? List.copyOf(result.subList(0, MAX_RECENT)) : result;
+    }
 
-        // Safe filtering: only cast if it's truly a TypeElement
-        List<TypeElement> innerTypes = members.stream()
-                .filter(e -> isTypeKind(e.getKind()))
-                .map(e -> (TypeElement) e)
-                .filter(te -> !te.equals(type))
-                .collect(Collectors.toList());
+    private static void collectFrecent(List<NodeData> nodes, Map<String, Double> frecency,
+            Map<NodeData, Double> found) {
+        for (NodeData n : nodes) {
+            double score = frecency.getOrDefault(n.key, 0.0);
+            if (score >= FRECENT) {
+                found.put(n, score);
+            }
+            if (n.isType()) {
+                collectFrecent(n.children, frecency, found);
+            }
+        }
+    }
 
-        List<ExecutableElement> methods = members.stream()
-                .filter(e -> e.getKind() == ElementKind.METHOD || e.getKind() == ElementKind.CONSTRUCTOR)
-                .map(e -> (ExecutableElement) e)
-                .collect(Collectors.toList());
+    /** Score from which a member counts as frequently or recently visited. */
+    static final double FRECENT = 0.25;
 
-        List<VariableElement> fields = members.stream()
-                .filter(e -> e.getKind() == ElementKind.FIELD || e.getKind() == ElementKind.ENUM_CONSTANT)
-                .map(e -> (VariableElement) e)
-                .collect(Collectors.toList());
+    /**
+     * Returns the entries matching {@code filter} as a flat list: frecent members
+     * by score first, then the best text matches. Works on the cached model only;
+     * no nodes are created.
+     */
+    List<Match> flatMatches(FileObject fo, boolean includeInherited, String filter,
+            Map<String, Double> frecency) throws Exception {
+        JavaSource js = JavaSource.forFileObject(fo);
+        if (js == null) {
+            return List.of();
+        }
+        List<NodeData> model = buildModel(fo, js, includeInherited);
+        MemberQuery q = MemberQuery.parse(filter);
+        List<Match> result = new ArrayList<>();
+        for (NodeData n : model) {
+            collectMatches(n, null, q, frecency, result);
+        }
+        // stable sort keeps tree order within equally ranked matches
+        result.sort(Comparator.comparing((Match m) -> !m.isFrecent())
+                .thenComparingDouble(m -> m.isFrecent() ? -m.frecency : 0)
+                .thenComparingInt(m -> m.rank)
+                .thenComparingInt(m -> m.data.display.length()));
+        return result;
+    }
 
-        // Fields
-        for (VariableElement f : fields) {
-            if (isSynthetic(f, info)) continue;
-            String disp = formatField(f);
-            typeNode.children.add(new NodeData(disp, ElementHandle.create(f), f.getModifiers()));
+    private static void collectMatches(NodeData node, String owner, MemberQuery q,
+            Map<String, Double> frecency, List<Match> out) {
+        if (q.matches(node)) {
+            double score = frecency.isEmpty() ? 0 : frecency.getOrDefault(node.key, 0.0);
+            out.add(new Match(node, owner, q.rank(node), score));
+        }
+        if (node.isType()) {
+            for (NodeData ch : node.children) {
+                collectMatches(ch, node.display, q, frecency, out);
+            }
         }
+    }
 
-        // Methods
-        for (ExecutableElement m : methods) {
-            if (isSynthetic(m, info)) continue;
-            String disp = formatMethod(m);
-            typeNode.children.add(new NodeData(disp, ElementHandle.create(m), m.getModifiers()));
+    /**
+     * Builds the hierarchy view of the type at {@code caretOffset}: the type itself,
+     * its supertypes and the subtypes known to {@code index}, each with its own
+     * filtered members.
+     */
+    RootAndHandles buildHierarchy(FileObject fo, int caretOffset, boolean includeInherited,
+            String filter, SubtypeIndex index) throws Exception {
+        JavaSource js = JavaSource.forFileObject(fo);
+        if (js == null) {
+            return new RootAndHandles(JavaNodes.errorRoot("Not a Java file"));
         }
+        MemberQuery q = MemberQuery.parse(filter);
+        final Map<String, List<NodeData>> groups = new LinkedHashMap<>();
+        // spans for the preview, recorded for types declared in this file
+        final Document doc = openDocument(fo);
 
-        // Inner classes recursively
-        for (TypeElement inner : innerTypes) {
-            if (inner.getNestingKind().isNested()) {                
-                typeNode.children.add(buildTypeNode(info, inner, includeInherited, visited));
+        js.runUserActionTask((CompilationController cc) -> {
+            cc.toPhase(JavaSource.Phase.ELEMENTS_RESOLVED);
+            List<? extends TypeElement> topLevelTypes = cc.getTopLevelElements();
+            TypeElement focused = focusedType(cc, caretOffset);
+            if (focused == null) {
+                return;
+            }
 
+            Set<TypeElement> supers = new LinkedHashSet<>();
+            Deque<TypeMirror> queue = new ArrayDeque<>(cc.getTypes().directSupertypes(focused.asType()));
+            while (!queue.isEmpty()) {
+                TypeMirror tm = queue.poll();
+                if (tm.getKind() == TypeKind.DECLARED
+                        && supers.add((TypeElement) ((DeclaredType) tm).asElement())) {
+                    queue.addAll(cc.getTypes().directSupertypes(tm));
+                }
             }
-        }
 
-        // Sort with safe resolution
-        typeNode.children.sort(Comparator
-                .comparing((NodeData n) -> score(n, info))
-                .thenComparing(n -> n.display.toLowerCase(Locale.ROOT)));
+            List<? extends ElementHandle<TypeElement>> subs = index == null ? List.of()
+                    : index.allSubtypes(cc.getElements().getBinaryName(focused).toString());
+
+            groups.put("Type", hierarchyNodes(cc, List.of(focused), includeInherited, topLevelTypes, q, doc));
+            groups.put("Supertypes", hierarchyNodes(cc, supers, includeInherited, topLevelTypes, q, doc));
+            if (subs == null) {
+                groups.put("Subtypes (indexing…)", List.of());
+            } else {
+                List<TypeElement> resolved = new ArrayList<>();
+                for (ElementHandle<TypeElement> h : subs) {
+                    TypeElement te = h.resolve(cc);
+                    if (te != null) {
+                        resolved.add(te);
+                    }
+                }
+                groups.put("Subtypes", hierarchyNodes(cc, resolved, includeInherited, topLevelTypes, q, doc));
+            }
+        }, true); // read-only
 
-        return typeNode;
+        if (groups.isEmpty()) {
+            return new RootAndHandles(JavaNodes.emptyRoot("No type at caret"));
+        }
+        return new RootAndHandles(JavaNodes.fromGroups(fo, groups, "Hierarchy"));
     }
 
-    private static boolean isTypeKind(ElementKind k) {
-        return k == ElementKind.CLASS ||
-               k == ElementKind.INTERFACE ||
-               k == ElementKind.ENUM ||
-               k == ElementKind.ANNOTATION_TYPE;
+    private List<NodeData> hierarchyNodes(CompilationInfo info, Collection<TypeElement> types,
+            boolean includeInherited, List<? extends TypeElement> topLevelTypes, MemberQuery q, Document doc) {
+        List<NodeData> result = new ArrayList<>();
+        // one context for all types: members shared by several of them are built once
+        BuildContext ctx = new BuildContext(info, includeInherited, doc, null, topLevelTypes);
+        for (TypeElement te : types) {
+            NodeData n = ctx.type(te);
+            NodeData kept = q.isEmpty() ? n : OutlineCore.filtered(n, q);
+            if (kept != null) {
+                result.add(kept);
+            }
+        }
+        return result;
     }
 
-    private static int score(NodeData n, CompilationInfo info) {
-        Element el = n.handle.resolve(info);
-        if (el == null) return Integer.MAX_VALUE;
-        ElementKind k = el.getKind();
-        if (isTypeKind(k)) return 0;
-        if (k == ElementKind.FIELD || k == ElementKind.ENUM_CONSTANT) return 1;
-        return 2;
+    /** Innermost type declaration around the caret, or the first top-level type. */
+    private static TypeElement focusedType(CompilationInfo info, int caretOffset) {
+        TreePath path = caretOffset < 0 ? null : info.getTreeUtilities().pathFor(caretOffset);
+        while (path != null) {
+            if (TreeUtilities.CLASS_TREE_KINDS.contains(path.getLeaf().getKind())) {
+                Element e = info.getTrees().getElement(path);
+                if (e instanceof TypeElement) {
+                    return (TypeElement) e;
+                }
+            }
+            path = path.getParentPath();
+        }
+        List<? extends TypeElement> top = info.getTopLevelElements();
+        return top.isEmpty() ? null : top.get(0);
     }
 
-    private static boolean isSynthetic(Element e, CompilationInfo info) {
-        return false;
-    }
+    /**
+     * Returns the unfiltered member model. For files open in the editor the model
+     * without inherited members is cached per document and only subtrees touched
+     * by edits are rebuilt.
+     */
+    private List<NodeData> buildModel(FileObject fo, JavaSource js, boolean includeInherited) throws Exception {
+        Document doc = openDocument(fo);
+        MemberModel cached = doc == null ? null : MemberModel.forDocument(doc);
+        if (cached != null) {
+            List<NodeData> upToDate = cached.upToDate(includeInherited);
+            if (upToDate != null) {
+                return upToDate;
+            }
+        }
+        final MemberModel.Snapshot snapshot = cached == null ? null : cached.beginBuild(includeInherited);
+        final List<NodeData> topNodes = new ArrayList<>();
 
-        private static String formatField(VariableElement f) {
-        String type = simpleType(f.asType());
-        return f.getSimpleName() + ": " + type;
-    }
+        js.runUserActionTask((CompilationController cc) -> {
+            cc.toPhase(JavaSource.Phase.ELEMENTS_RESOLVED);
+
+            List<? extends TypeElement> topLevelTypes = cc.getTopLevelElements();
+            BuildContext ctx = new BuildContext(cc, includeInherited, doc, snapshot, topLevelTypes);
+            for (TypeElement type : topLevelTypes) {
+                topNodes.add(ctx.type(type));
+            }
+        }, true); // read-only
 
-    private static String formatMethod(ExecutableElement m) {
-        String params = m.getParameters().stream()
-                .map(p -> simpleType(p.asType())) // types only; add " + \" \" + p.getSimpleName()" if you prefer names too
-                .collect(Collectors.joining(", "));
-        String ret = simpleType(m.getReturnType());
-        Name name = m.getSimpleName();
-        if (m.getKind().equals(ElementKind.CONSTRUCTOR)) {
-            name = m.getEnclosingElement().getSimpleName();
+        if (cached != null) {
+            cached.install(snapshot, topNodes, includeInherited);
         }
-        return name + "(" + params + "): " + ret;
+        return topNodes;
     }
 
-    /**
-     * Returns a short display name for a TypeElement, including nesting
-     * (Outer.Inner), but no package.
-     */
-    private static String simpleTypeName(TypeElement type) {
-        String name = type.getSimpleName().toString();
-        Element e = type.getEnclosingElement();
-        while (e instanceof TypeElement) {
-            name = ((TypeElement) e).getSimpleName().toString() + "." + name;
-            e = e.getEnclosingElement();
-        }
-        return name;
+    static Document openDocument(FileObject fo) {
+        try {
+            EditorCookie ec = DataObject.find(fo).getLookup().lookup(EditorCookie.class);
+            return ec == null ? null : ec.getDocument();
+        } catch (DataObjectNotFoundException ex) {
+            return null;
+        }
     }
 
     /**
-     * Pretty-print a TypeMirror using only simple names, preserving generics,
-     * arrays, and wildcards.
+     * One build over {@link OutlineCore.Traversal}: adds handles and, for types of
+     * this file, declaration spans, and reuses clean subtrees of the previous model.
      */
-    private static String simpleType(TypeMirror tm) {
-        switch (tm.getKind()) {
-            case BOOLEAN:
-            case BYTE:
-            case SHORT:
-            case INT:
-            case LONG:
-            case CHAR:
-            case FLOAT:
-            case DOUBLE:
-            case VOID:
-                return tm.toString(); // primitives & void already short
-            case ARRAY:
-                ArrayType at = (ArrayType) tm;
-                return simpleType(at.getComponentType()) + "[]";
-            case DECLARED: {
-                DeclaredType dt = (DeclaredType) tm;
-                TypeElement te = (TypeElement) dt.asElement();
-                StringBuilder sb = new StringBuilder(simpleTypeName(te));
-
-                var args = dt.getTypeArguments();
-                if (!args.isEmpty()) {
-                    sb.append('<');
-                    for (int i = 0; i < args.size(); i++) {
-                        if (i > 0) {
-                            sb.append(", ");
-                        }
-                        sb.append(simpleType(args.get(i)));
-                    }
-                    sb.append('>');
+    private static final class BuildContext extends OutlineCore.Traversal<NodeData> {
+        final CompilationInfo info;
+        final Document doc;
+        final MemberModel.Snapshot snapshot;
+        final Map<ElementHandle<?>, NodeData> previousTypes = new HashMap<>();
+        final Set<TypeElement> localTopLevel;
+        private final Map<TypeElement, Map<Element, Tree>> memberTrees = new IdentityHashMap<>();
+
+        BuildContext(CompilationInfo info, boolean includeInherited, Document doc,
+                MemberModel.Snapshot snapshot, List<? extends TypeElement> topLevel) {
+            super(info.getElements(), includeInherited);
+            this.info = info;
+            this.doc = doc;
+            this.snapshot = snapshot;
+            this.localTopLevel = new HashSet<>(topLevel);
+            if (snapshot != null && snapshot.previous() != null) {
+                indexTypes(snapshot.previous());
+            }
+        }
+
+        private void indexTypes(List<NodeData> nodes) {
+            for (NodeData n : nodes) {
+                if (n.isType()) {
+                    previousTypes.put(n.handle, n);
+                    indexTypes(n.children);
+                }
+            }
+        }
+
+        boolean isLocal(TypeElement type) {
+            return doc != null && localTopLevel.contains(SourceUtils.getOutermostEnclosingTypeElement(type));
+        }
+
+        @Override
+        NodeData newType(TypeElement type) {
+            NodeData typeNode = new NodeData(OutlineCore.simpleTypeName(type), ElementHandle.create(type),
+                    typeKey(type), type.getModifiers());
+            if (isLocal(type)) {
+                recordSpan(typeNode, info.getTrees().getTree(type), info, doc);
+            }
+            return typeNode;
+        }
+
+        /**
+         * A member is the same under its declaring type and every inheriting type;
+         * its span is taken from the declaring type's tree, whichever type reaches it first.
+         */
+        @Override
+        NodeData newMember(Element member) {
+            TypeElement declaring = (TypeElement) member.getEnclosingElement();
+            NodeData n = new NodeData(OutlineCore.display(member), ElementHandle.create(member),
+                    NavigationHistory.memberKey(typeKey(declaring), signature(member)), member.getModifiers());
+            if (isLocal(declaring)) {
+                Map<Element, Tree> trees = memberTrees.computeIfAbsent(declaring,
+                        t -> JavaTreeBuilder.memberTrees(info, t));
+                recordSpan(n, trees.get(member), info, doc);
+            }
+            return n;
+        }
+
+        @Override
+        NodeData newRecursive(TypeElement type) {
+            return new NodeData(OutlineCore.simpleTypeName(type) + " (recursive)", ElementHandle.create(type),
+                    typeKey(type), type.getModifiers());
+        }
+
+        private String typeKey(TypeElement type) {
+            return NavigationHistory.memberKey(info.getElements().getBinaryName(type).toString(), null);
+        }
+
+        /** Name and erased parameter types, stable across builds and sessions. */
+        private String signature(Element member) {
+            if (!(member instanceof ExecutableElement)) {
+                return member.getSimpleName().toString();
+            }
+            StringBuilder sb = new StringBuilder(member.getSimpleName()).append('(');
+            List<? extends VariableElement> params = ((ExecutableElement) member).getParameters();
+            for (int i = 0; i < params.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
                 }
-                return sb.toString();
+                sb.append(info.getTypes().erasure(params.get(i).asType()));
             }
-            case TYPEVAR:
-            case ERROR:      // unresolved types—fallback to existing ident
-                return tm.toString();
-            case WILDCARD: {
-                WildcardType wt = (WildcardType) tm;
-                StringBuilder sb = new StringBuilder("?");
-                if (wt.getExtendsBound() != null) {
-                    sb.append(" extends ").append(simpleType(wt.getExtendsBound()));
-                } else if (wt.getSuperBound() != null) {
-                    sb.append(" super ").append(simpleType(wt.getSuperBound()));
+            return sb.append(')').toString();
+        }
+
+        @Override
+        NodeData reuse(TypeElement type) {
+            NodeData previous = previousTypes.isEmpty() ? null : previousTypes.get(ElementHandle.create(type));
+            if (previous == null) {
+                return null;
+            }
+            if (snapshot.isClean(previous)) {
+                return previous;
+            }
+            return snapshot.isOwnMembersClean(previous) ? rebuildNestedOnly(previous) : null;
+        }
+
+        /**
+         * Reuses the members of a type whose own declarations are unchanged and
+         * rebuilds only its nested types. Returns {@code null} if a nested type
+         * cannot be resolved any more, in which case the type is rebuilt fully.
+         */
+        private NodeData rebuildNestedOnly(NodeData previous) {
+            List<NodeData> children = new ArrayList<>(previous.children.size());
+            for (NodeData ch : previous.children) {
+                if (!ch.isType()) {
+                    children.add(ch);
+                    continue;
                 }
-                return sb.toString();
+                Element inner = ch.handle.resolve(info);
+                if (!(inner instanceof TypeElement)) {
+                    return null;
+                }
+                children.add(type((TypeElement) inner));
             }
-            case INTERSECTION:
-            case UNION:
-            default:
-                // Rare in signatures here; fall back to default rendering
-                return tm.toString();
+            return previous.withChildren(children);
         }
     }
 
-    private static boolean keepWithDescendants(NodeData node, String qLower) {
-        boolean selfMatches = node.display.toLowerCase(Locale.ROOT).contains(qLower);
-
-        List<NodeData> keptChildren = new ArrayList<>();
-        for (NodeData ch : node.children) {
-            if (keepWithDescendants(ch, qLower)) {
-                keptChildren.add(ch);
+    /** Maps the member elements of a type declared in this file to their trees. */
+    private static Map<Element, Tree> memberTrees(CompilationInfo info, TypeElement type) {
+        Trees trees = info.getTrees();
+        Tree tree = trees.getTree(type);
+        if (!(tree instanceof ClassTree)) {
+            return Map.of();
+        }
+        TreePath cuPath = new TreePath(info.getCompilationUnit());
+        Map<Element, Tree> result = new HashMap<>();
+        for (Tree member : ((ClassTree) tree).getMembers()) {
+            Element e = trees.getElement(new TreePath(cuPath, member));
+            if (e != null) {
+                result.put(e, member);
             }
         }
-        node.children.clear();
-        node.children.addAll(keptChildren);
+        return result;
+    }
 
-        return selfMatches || !keptChildren.isEmpty();
+    private static void recordSpan(NodeData n, Tree tree, CompilationInfo info, Document doc) {
+        if (tree == null || doc == null) {
+            return;
+        }
+        CompilationUnitTree cu = info.getCompilationUnit();
+        SourcePositions sp = info.getTrees().getSourcePositions();
+        long start = sp.getStartPosition(cu, tree);
+        long end = sp.getEndPosition(cu, tree);
+        if (start < 0 || end <= start) {
+            return; // implicit members have no usable positions
+        }
+        try {
+            n.start = doc.createPosition((int) start);
+            n.end = doc.createPosition((int) end);
+            if (tree instanceof MethodTree && ((MethodTree) tree).getBody() != null) {
+                long body = sp.getStartPosition(cu, ((MethodTree) tree).getBody());
+                if (body >= 0) {
+                    n.bodyStart = doc.createPosition((int) body);
+                }
+            }
+        } catch (BadLocationException ex) {
+            n.start = n.end = n.bodyStart = null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,243 @@
+package io.github.s4gh.navigator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import javax.swing.text.Position;
+import org.netbeans.lib.editor.util.swing.DocumentUtilities;
+
+/**
+ * Unfiltered member model of one open document, kept up to date by edits.
+ *
+ * Every edit is mapped through the spans recorded in {@link JavaTreeBuilder.NodeData}
+ * to the innermost type it touches. That type is marked dirty, its enclosing types
+ * are marked as touched, and on the next build only those subtrees are rebuilt.
+ * Edits that stay inside a method body and do not contain characters that can change
+ * the structure (braces, quotes, comment markers, line breaks) do not invalidate
+ * anything.
+ *
+ * Models with inherited members are never served from the cache: supertypes may
+ * be edited in other editors or changed on disk without this document noticing.
+ */
+final class MemberModel {
+
+    /** Guards creation of the model stored as a property of each document. */
+    private static final Object LOCK = new Object();
+
+    private List<JavaTreeBuilder.NodeData> topNodes;
+    private boolean includeInherited;
+    private boolean structureDirty = true;
+    private long modCount;
+    private Set<JavaTreeBuilder.NodeData> dirty = newIdentitySet();
+    private Set<JavaTreeBuilder.NodeData> touched = newIdentitySet();
+
+    private MemberModel() {}
+
+    /**
+     * Model of {@code doc}, kept as a document property. The nodes hold positions
+     * into the document, so the model must not outlive it; a property goes away
+     * together with the document.
+     */
+    static MemberModel forDocument(Document doc) {
+        synchronized (LOCK) {
+            MemberModel model = (MemberModel) doc.getProperty(MemberModel.class);
+            if (model == null) {
+                model = new MemberModel();
+                doc.addDocumentListener(model.new Listener());
+                doc.putProperty(MemberModel.class, model);
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Current version of the text of {@code doc}, or {@code null} if it is not open.
+     */
+    static Version versionOf(Document doc) {
+        if (doc == null) {
+            return null;
+        }
+        MemberModel model = forDocument(doc);
+        synchronized (model) {
+            return new Version(model, model.modCount);
+        }
+    }
+
+    /**
+     * Returns the cached top nodes if nothing changed since they were built,
+     * otherwise {@code null}.
+     */
+    synchronized List<JavaTreeBuilder.NodeData> upToDate(boolean inherited) {
+        if (inherited || topNodes == null || structureDirty || includeInherited
+                || !dirty.isEmpty() || !touched.isEmpty()) {
+            return null;
+        }
+        return topNodes;
+    }
+
+    /** Captures what can be reused by a build that is about to start. */
+    synchronized Snapshot beginBuild(boolean inherited) {
+        boolean reusable = topNodes != null && !structureDirty && inherited == includeInherited
+                && !inherited;
+        Set<JavaTreeBuilder.NodeData> dirtyCopy = newIdentitySet();
+        dirtyCopy.addAll(dirty);
+        Set<JavaTreeBuilder.NodeData> touchedCopy = newIdentitySet();
+        touchedCopy.addAll(touched);
+        return new Snapshot(reusable ? topNodes : null, dirtyCopy, touchedCopy, modCount);
+    }
+
+    /** Installs a finished build; spans are trusted only if no edit raced with it. */
+    synchronized void install(Snapshot snapshot, List<JavaTreeBuilder.NodeData> nodes, boolean inherited) {
+        topNodes = nodes;
+        includeInherited = inherited;
+        structureDirty = snapshot.modCount != modCount;
+        dirty = newIdentitySet();
+        touched = newIdentitySet();
+    }
+
+    private synchronized void edited(DocumentEvent e, boolean insert) {
+        modCount++;
+        if (topNodes == null || structureDirty) {
+            return;
+        }
+        int off = e.getOffset();
+        int len = e.getLength();
+
+        JavaTreeBuilder.NodeData enclosing = null;
+        List<JavaTreeBuilder.NodeData> level = topNodes;
+        List<JavaTreeBuilder.NodeData> path = new ArrayList<>();
+        outer:
+        while (true) {
+            for (JavaTreeBuilder.NodeData n : level) {
+                if (n.isType() && contains(n, off)) {
+                    enclosing = n;
+                    path.add(n);
+                    level = n.children;
+                    continue outer;
+                }
+            }
+            break;
+        }
+
+        if (enclosing == null) {
+            // package/imports or between top-level types: anything may have changed
+            structureDirty = true;
+            return;
+        }
+
+        if (insideBody(enclosing, off, insert ? off + len : off) && !isStructural(DocumentUtilities.getModificationText(e))) {
+            return;
+        }
+
+        dirty.add(enclosing);
+        touched.addAll(path);
+    }
+
+    private static boolean contains(JavaTreeBuilder.NodeData n, int off) {
+        return n.start != null && n.end != null
+                && n.start.getOffset() <= off && off < n.end.getOffset();
+    }
+
+    private static boolean insideBody(JavaTreeBuilder.NodeData type, int from, int to) {
+        for (JavaTreeBuilder.NodeData m : type.children) {
+            Position body = m.bodyStart;
+            if (body != null && m.end != null && from > body.getOffset() && to < m.end.getOffset()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isStructural(String text) {
+        if (text == null) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            switch (text.charAt(i)) {
+                case '{', '}', '"', '\'', '/', '*', '\n', '\r' -> {
+                    return true;
+                }
+                default -> { }
+            }
+        }
+        return false;
+    }
+
+    private static Set<JavaTreeBuilder.NodeData> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Edit count of one document instance. A document that is closed and opened
+     * again is a new instance, so versions taken before never match it.
+     */
+    static final class Version {
+        private final MemberModel model;
+        private final long modCount;
+
+        private Version(MemberModel model, long modCount) {
+            this.model = model;
+            this.modCount = modCount;
+        }
+
+        /** Whether this version was taken from {@code doc}, edited or not since. */
+        boolean isOf(Document doc) {
+            if (doc == null) {
+                return false;
+            }
+            return doc.getProperty(MemberModel.class) == model;
+        }
+
+        /** Whether {@code doc} is the same instance and its text did not change since. */
+        boolean isCurrent(Document doc) {
+            if (!isOf(doc)) {
+                return false;
+            }
+            synchronized (model) {
+                return model.modCount == modCount;
+            }
+        }
+    }
+
+    /** State of the model at the start of a build. */
+    static final class Snapshot {
+        private final List<JavaTreeBuilder.NodeData> previous;
+        private final Set<JavaTreeBuilder.NodeData> dirty;
+        private final Set<JavaTreeBuilder.NodeData> touched;
+        private final long modCount;
+
+        private Snapshot(List<JavaTreeBuilder.NodeData> previous, Set<JavaTreeBuilder.NodeData> dirty,
+                Set<JavaTreeBuilder.NodeData> touched, long modCount) {
+            this.previous = previous;
+            this.dirty = dirty;
+            this.touched = touched;
+            this.modCount = modCount;
+        }
+
+        /** Previous top nodes, or {@code null} when everything must be rebuilt. */
+        List<JavaTreeBuilder.NodeData> previous() {
+            return previous;
+        }
+
+        /** Subtree can be reused as is. */
+        boolean isClean(JavaTreeBuilder.NodeData type) {
+            return !touched.contains(type);
+        }
+
+        /** Own members can be reused, only nested types need a look. */
+        boolean isOwnMembersClean(JavaTreeBuilder.NodeData type) {
+            return !dirty.contains(type);
+        }
+    }
+
+    private final class Listener implements DocumentListener {
+        @Override public void insertUpdate(DocumentEvent e) { edited(e, true); }
+        @Override public void removeUpdate(DocumentEvent e) { edited(e, false); }
+        @Override public void changedUpdate(DocumentEvent e) { }
+    }
+}
@@ -0,0 +1,247 @@
+package io.github.s4gh.navigator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+
+/**
+ * Search query parsed once per keystroke into a plan of bit masks.
+ *
+ * Plain text keeps the old behaviour: a case-insensitive substring of the
+ * display name. As soon as one {@code prefix:} token is present the query is
+ * structured:
+ * <ul>
+ * <li>{@code m:}, {@code f:}, {@code c:}, {@code ctor:} restrict the kind
+ *     (several kinds are OR-ed), text after the colon is matched as a name;</li>
+ * <li>{@code ret:Name} requires {@code Name} as a simple type name in the
+ *     method return type or field type;</li>
+ * <li>modifier keywords such as {@code static} or {@code private} require the
+ *     modifier;</li>
+ * <li>remaining words must all occur in the display name.</li>
+ * </ul>
+ * Kind, modifier and type checks are evaluated against bits captured in
+ * {@link OutlineCore.Entry} when the outline is built.
+ */
+final class MemberQuery {
+
+    static final int KIND_TYPE = 1;
+    static final int KIND_FIELD = 1 << 1;
+    static final int KIND_METHOD = 1 << 2;
+    static final int KIND_CONSTRUCTOR = 1 << 3;
+
+    private static final Map<String, Integer> KIND_PREFIXES = Map.of(
+            "m", KIND_METHOD,
+            "f", KIND_FIELD,
+            "c", KIND_TYPE,
+            "ctor", KIND_CONSTRUCTOR);
+
+    static final MemberQuery EMPTY = new MemberQuery(0, 0, 0, new String[0], new String[0]);
+
+    private final int kindMask;
+    private final int modifierMask;
+    private final long typeBloom;
+    private final String[] typeTokens;
+    private final String[] words;
+
+    private MemberQuery(int kindMask, int modifierMask, long typeBloom, String[] typeTokens, String[] words) {
+        this.kindMask = kindMask;
+        this.modifierMask = modifierMask;
+        this.typeBloom = typeBloom;
+        this.typeTokens = typeTokens;
+        this.words = words;
+    }
+
+    static MemberQuery parse(String filter) {
+        String q = (filter == null) ? "" : filter.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            return EMPTY;
+        }
+        String[] parts = q.split("\\s+");
+        if (!isStructured(parts)) {
+            return new MemberQuery(0, 0, 0, new String[0], new String[] {q});
+        }
+
+        int kinds = 0;
+        int modifiers = 0;
+        long bloom = 0;
+        List<String> types = new ArrayList<>();
+        List<String> text = new ArrayList<>();
+        for (String p : parts) {
+            int colon = p.indexOf(':');
+            String prefix = colon < 0 ? null : p.substring(0, colon);
+            String value = colon < 0 ? p : p.substring(colon + 1);
+            if (prefix != null && KIND_PREFIXES.containsKey(prefix)) {
+                kinds |= KIND_PREFIXES.get(prefix);
+            } else if (prefix != null && !"ret".equals(prefix)) {
+                value = p; // unknown prefix, plain text
+            } else if ("ret".equals(prefix)) {
+                if (!value.isEmpty()) {
+                    types.add(value);
+                    bloom |= bloomBit(value);
+                }
+                continue;
+            } else if (modifierBit(p) != 0) {
+                modifiers |= modifierBit(p);
+                continue;
+            }
+            if (!value.isEmpty()) {
+                text.add(value);
+            }
+        }
+        return new MemberQuery(kinds, modifiers, bloom,
+                types.toArray(new String[0]), text.toArray(new String[0]));
+    }
+
+    boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /** Whether the node itself (ignoring its children) satisfies the query. */
+    boolean matches(OutlineCore.Entry<?> n) {
+        if (kindMask != 0 && (n.kindBits & kindMask) == 0) {
+            return false;
+        }
+        if ((n.modifierBits & modifierMask) != modifierMask) {
+            return false;
+        }
+        if (typeTokens.length > 0) {
+            if ((n.typeBloom & typeBloom) != typeBloom || !containsAll(n.typeTokens, typeTokens)) {
+                return false;
+            }
+        }
+        for (String w : words) {
+            if (!n.displayLower.contains(w)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match quality for ranking flat results, lower is better: the first word
+     * starts the name, starts a camel-case hump, or just occurs somewhere.
+     */
+    int rank(OutlineCore.Entry<?> n) {
+        if (words.length == 0) {
+            return 0;
+        }
+        // searched in display itself: lower-casing may change the length, so
+        // indexes into displayLower do not always point at the same characters
+        int idx = indexOfIgnoreCase(n.display, words[0]);
+        if (idx == 0) {
+            return 0;
+        }
+        if (idx > 0) {
+            char c = n.display.charAt(idx);
+            char before = n.display.charAt(idx - 1);
+            if (Character.isUpperCase(c) || !Character.isJavaIdentifierPart(before) || before == '_') {
+                return 1;
+            }
+        }
+        return 2;
+    }
+
+    private static int indexOfIgnoreCase(String s, String word) {
+        for (int i = 0; i + word.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, word, 0, word.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int kindBits(ElementKind kind) {
+        if (kind.isClass() || kind.isInterface()) {
+            return KIND_TYPE;
+        }
+        return switch (kind) {
+            case FIELD, ENUM_CONSTANT -> KIND_FIELD;
+            case METHOD -> KIND_METHOD;
+            case CONSTRUCTOR -> KIND_CONSTRUCTOR;
+            default -> 0;
+        };
+    }
+
+    static int modifierBits(Iterable<Modifier> modifiers) {
+        int bits = 0;
+        for (Modifier m : modifiers) {
+            bits |= 1 << m.ordinal();
+        }
+        return bits;
+    }
+
+    /**
+     * Lower-cased simple type names of the method return type or field type,
+     * taken from the display text ({@code name(args): Type} or {@code name: Type}).
+     */
+    static String[] typeTokens(String displayLower, int kindBits) {
+        int idx = (kindBits & (KIND_METHOD | KIND_CONSTRUCTOR)) != 0
+                ? displayLower.lastIndexOf("): ") + 1
+                : displayLower.indexOf(": ");
+        if (idx <= 0 || (kindBits & KIND_TYPE) != 0) {
+            return new String[0];
+        }
+        List<String> tokens = new ArrayList<>(2);
+        int start = -1;
+        for (int i = idx + 2; i <= displayLower.length(); i++) {
+            boolean part = i < displayLower.length() && Character.isJavaIdentifierPart(displayLower.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                tokens.add(displayLower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    static long typeBloom(String[] tokens) {
+        long bloom = 0;
+        for (String t : tokens) {
+            bloom |= bloomBit(t);
+        }
+        return bloom;
+    }
+
+    private static long bloomBit(String token) {
+        return 1L << (token.hashCode() & 63);
+    }
+
+    private static boolean isStructured(String[] parts) {
+        for (String p : parts) {
+            int colon = p.indexOf(':');
+            if (colon > 0) {
+                String prefix = p.substring(0, colon);
+                if (KIND_PREFIXES.containsKey(prefix) || "ret".equals(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int modifierBit(String word) {
+        for (Modifier m : Modifier.values()) {
+            if (m.toString().equals(word)) {
+                return 1 << m.ordinal();
+            }
+        }
+        return 0;
+    }
+
+    private static boolean containsAll(String[] have, String[] want) {
+        outer:
+        for (String w : want) {
+            for (String h : have) {
+                if (h.equals(w)) {
+                    continue outer;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+}
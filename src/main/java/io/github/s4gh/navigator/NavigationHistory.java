@@ -0,0 +1,210 @@
+package io.github.s4gh.navigator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.filesystems.FileObject;
+import org.openide.modules.Places;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Persisted frecency of members opened from the navigator.
+ *
+ * Each open adds 1 to the member's score; scores halve every {@link #HALF_LIFE_MILLIS},
+ * so frequent and recent members rank highest. The store is a small binary file
+ * in the user cache directory, read in the background on first use and capped at
+ * {@link #MAX_ENTRIES}; until it is loaded all scores are zero.
+ */
+final class NavigationHistory {
+
+    private static final Logger LOG = Logger.getLogger(NavigationHistory.class.getName());
+    private static final RequestProcessor RP = new RequestProcessor(NavigationHistory.class);
+    private static final NavigationHistory INSTANCE = new NavigationHistory();
+
+    private static final String STORE = "filtering-navigator/history.dat";
+    /** 2: members keyed by declaring type and signature instead of by display names. */
+    private static final int VERSION = 2;
+    private static final int MAX_ENTRIES = 1_000;
+    private static final long HALF_LIFE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    /** File path to member key to entry; guarded by {@code this}. */
+    private final Map<String, Map<String, Entry>> entries = new HashMap<>();
+    private volatile boolean loaded;
+    private boolean loading;
+
+    private NavigationHistory() {}
+
+    static NavigationHistory get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Key of a member: binary name of its declaring type and its signature, so a
+     * member keeps its history wherever it is listed (declared, inherited by any
+     * subtype, in the hierarchy). Types are keyed by binary name alone.
+     */
+    static String memberKey(String declaringType, String signature) {
+        return signature == null ? declaringType : declaringType + '#' + signature;
+    }
+
+    /** Starts loading the store in the background if that has not happened yet. */
+    void ensureLoaded() {
+        synchronized (this) {
+            if (loaded || loading) {
+                return;
+            }
+            loading = true;
+        }
+        RP.post(this::load);
+    }
+
+    /**
+     * Decayed scores of the members of {@code fo} by member key. Empty while the
+     * store is still loading, never blocks.
+     */
+    synchronized Map<String, Double> scores(FileObject fo) {
+        ensureLoaded();
+        Map<String, Entry> members = loaded ? entries.get(fo.getPath()) : null;
+        if (members == null) {
+            return Map.of();
+        }
+        long now = System.currentTimeMillis();
+        Map<String, Double> result = new HashMap<>(members.size() * 2);
+        members.forEach((k, e) -> result.put(k, e.decayed(now)));
+        return result;
+    }
+
+    /** Records an open; the store is updated and written in the background. */
+    void record(FileObject fo, String memberKey) {
+        String file = fo.getPath();
+        long now = System.currentTimeMillis();
+        RP.post(() -> {
+            if (!loaded) {
+                load();
+            }
+            Map<String, Map<String, Entry>> copy = new HashMap<>();
+            synchronized (this) {
+                Map<String, Entry> members = entries.computeIfAbsent(file, f -> new HashMap<>());
+                Entry e = members.get(memberKey);
+                double score = (e == null ? 0 : e.decayed(now)) + 1;
+                members.put(memberKey, new Entry((float) score, now));
+                prune(now);
+                // entries are immutable, copying the maps is enough to write without the lock
+                entries.forEach((f, m) -> copy.put(f, new HashMap<>(m)));
+            }
+            save(copy);
+        });
+    }
+
+    private void load() {
+        Map<String, Map<String, Entry>> read = new HashMap<>();
+        File f = Places.getCacheSubfile(STORE);
+        if (f.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+                if (in.readInt() == VERSION) {
+                    int files = in.readInt();
+                    for (int i = 0; i < files; i++) {
+                        String file = in.readUTF();
+                        int count = in.readInt();
+                        Map<String, Entry> members = new HashMap<>(count * 2);
+                        for (int j = 0; j < count; j++) {
+                            String key = in.readUTF();
+                            members.put(key, new Entry(in.readFloat(), in.readLong()));
+                        }
+                        read.put(file, members);
+                    }
+                }
+            } catch (IOException ex) {
+                LOG.log(Level.INFO, "Cannot read navigation history, starting empty", ex);
+                read.clear();
+            }
+        }
+        synchronized (this) {
+            if (!loaded) {
+                entries.putAll(read);
+                loaded = true;
+            }
+            loading = false;
+        }
+    }
+
+    /**
+     * Writes {@code snapshot} to a temporary file and moves it over the store, so
+     * a crash mid-write leaves the previous store intact. Runs on {@link #RP} only.
+     */
+    private static void save(Map<String, Map<String, Entry>> snapshot) {
+        File f = Places.getCacheSubfile(STORE);
+        File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Map<String, Entry>> file : snapshot.entrySet()) {
+                    out.writeUTF(file.getKey());
+                    out.writeInt(file.getValue().size());
+                    for (Map.Entry<String, Entry> m : file.getValue().entrySet()) {
+                        out.writeUTF(m.getKey());
+                        out.writeFloat(m.getValue().score);
+                        out.writeLong(m.getValue().time);
+                    }
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Cannot write navigation history", ex);
+        }
+    }
+
+    /** Drops the weakest entries once the store grows beyond its cap. */
+    private void prune(long now) {
+        int total = 0;
+        for (Map<String, Entry> members : entries.values()) {
+            total += members.size();
+        }
+        if (total <= MAX_ENTRIES) {
+            return;
+        }
+        double[] all = new double[total];
+        int i = 0;
+        for (Map<String, Entry> members : entries.values()) {
+            for (Entry e : members.values()) {
+                all[i++] = e.decayed(now);
+            }
+        }
+        Arrays.sort(all);
+        double cutoff = all[total - MAX_ENTRIES];
+        entries.values().forEach(members -> members.values().removeIf(e -> e.decayed(now) < cutoff));
+        entries.values().removeIf(Map::isEmpty);
+    }
+
+    private static final class Entry {
+        final float score;
+        final long time;
+
+        Entry(float score, long time) {
+            this.score = score;
+            this.time = time;
+        }
+
+        double decayed(long now) {
+            return score * Math.pow(0.5, (double) Math.max(0, now - time) / HALF_LIFE_MILLIS);
+        }
+    }
+}
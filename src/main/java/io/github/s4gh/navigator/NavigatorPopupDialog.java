@@ -41,6 +41,15 @@ public class NavigatorPopupDialog extends JDialog {
         );
     }
     
+    @Override
+    public void dispose() {
+        // every close path ends here; keep what was shown for the next dialog on this file
+        if (javaMembersPanel != null) {
+            javaMembersPanel.rememberState();
+        }
+        super.dispose();
+    }
+
     public void toggleShowInherited() {
         javaMembersPanel.toggleShowInherited();
     }
@@ -0,0 +1,68 @@
+package io.github.s4gh.navigator;
+
+import java.util.List;
+import java.util.Set;
+import javax.swing.text.Document;
+
+/**
+ * What the dialog showed for a file when it was last closed: query, options,
+ * selection, expansion and the filtered result itself.
+ *
+ * The dialog is disposed on close; keeping this per document lets a reopened
+ * dialog paint the previous result synchronously and only revalidate in the
+ * background when the document {@link #version} has moved on. The session is a
+ * property of the document instance it was built from, so it goes away when the
+ * document is closed, together with the nodes and positions it holds.
+ */
+final class NavigatorSession {
+
+    final String query;
+    final boolean includeInherited;
+    final boolean flatMode;
+    final boolean hierarchyMode;
+    /** Filtered tree result, {@code null} when the flat list or nothing restorable was shown. */
+    final List<JavaTreeBuilder.NodeData> topNodes;
+    /** "Recent" group shown above the tree, empty if none. */
+    final List<JavaTreeBuilder.NodeData> recent;
+    /** Flat result, {@code null} when the tree or nothing restorable was shown. */
+    final List<JavaTreeBuilder.Match> matches;
+    /** Document version the result was built from, {@code null} if it was not open. */
+    final MemberModel.Version version;
+
+    /** {@link NavigationHistory#memberKey} of the selected row, may be {@code null}. */
+    String selectedKey;
+    /** Member keys of expanded type nodes, {@code null} to expand everything. */
+    Set<String> expandedKeys;
+
+    NavigatorSession(String query, boolean includeInherited, boolean flatMode, boolean hierarchyMode,
+            List<JavaTreeBuilder.NodeData> topNodes, List<JavaTreeBuilder.NodeData> recent,
+            List<JavaTreeBuilder.Match> matches, MemberModel.Version version) {
+        this.query = query;
+        this.includeInherited = includeInherited;
+        this.flatMode = flatMode;
+        this.hierarchyMode = hierarchyMode;
+        this.topNodes = topNodes;
+        this.recent = recent;
+        this.matches = matches;
+        this.version = version;
+    }
+
+    /** Query and options only, for views that are rebuilt rather than restored (hierarchy, messages). */
+    static NavigatorSession optionsOnly(String query, boolean includeInherited, boolean flatMode,
+            boolean hierarchyMode) {
+        return new NavigatorSession(query, includeInherited, flatMode, hierarchyMode, null, List.of(), null, null);
+    }
+
+    /** Whether there is a result to paint, not just options. */
+    boolean hasResult() {
+        return version != null && (topNodes != null || matches != null);
+    }
+
+    static NavigatorSession get(Document doc) {
+        return doc == null ? null : (NavigatorSession) doc.getProperty(NavigatorSession.class);
+    }
+
+    static void put(Document doc, NavigatorSession session) {
+        doc.putProperty(NavigatorSession.class, session);
+    }
+}
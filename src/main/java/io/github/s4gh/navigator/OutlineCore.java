@@ -0,0 +1,356 @@
+package io.github.s4gh.navigator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+
+/**
+ * The part of the outline that does not depend on the IDE: which members a type
+ * lists, how they are displayed, their order and filtering.
+ *
+ * Only {@code javax.lang.model} is used, so the same code backs the navigator
+ * ({@link JavaTreeBuilder}, on NetBeans' {@code CompilationInfo}) and the batch
+ * {@link OutlineExtractor} (on a plain {@code JavacTask}).
+ */
+final class OutlineCore {
+
+    /** Kind first (types, fields, methods), then name. */
+    static final Comparator<Entry<?>> ORDER = Comparator
+            .comparingInt((Entry<?> n) -> score(n.kind))
+            .thenComparing(n -> n.displayLower);
+
+    private OutlineCore() {}
+
+    /**
+     * One entry of an outline. Entries may be shared by several parents and are
+     * never modified once built; filtering copies instead.
+     */
+    abstract static class Entry<E extends Entry<E>> {
+        final String display;
+        final ElementKind kind;
+        final Set<Modifier> modifiers;
+        final List<E> children = new ArrayList<>();
+        // query bits, captured once so filtering is mostly bit tests (see MemberQuery)
+        final String displayLower;
+        final int kindBits;
+        final int modifierBits;
+        final String[] typeTokens;
+        final long typeBloom;
+
+        Entry(String display, ElementKind kind, Set<Modifier> modifiers) {
+            this.display = display;
+            this.kind = kind;
+            this.modifiers = modifiers;
+            this.displayLower = display.toLowerCase(Locale.ROOT);
+            this.kindBits = MemberQuery.kindBits(kind);
+            this.modifierBits = MemberQuery.modifierBits(modifiers);
+            this.typeTokens = MemberQuery.typeTokens(displayLower, kindBits);
+            this.typeBloom = MemberQuery.typeBloom(typeTokens);
+        }
+
+        boolean isType() {
+            return kind.isClass() || kind.isInterface();
+        }
+
+        /** Copy sharing everything but the children list. */
+        abstract E withChildren(List<E> newChildren);
+    }
+
+    /** Entry of an outline built outside the IDE, see {@link #outline}. */
+    static final class Item extends Entry<Item> {
+        Item(String display, ElementKind kind, Set<Modifier> modifiers) {
+            super(display, kind, modifiers);
+        }
+
+        @Override
+        Item withChildren(List<Item> newChildren) {
+            Item copy = new Item(display, kind, modifiers);
+            copy.children.addAll(newChildren);
+            return copy;
+        }
+    }
+
+    /** What a type lists, grouped the way it is built. */
+    static final class Members {
+        final List<VariableElement> fields = new ArrayList<>();
+        final List<ExecutableElement> methods = new ArrayList<>();
+        final List<TypeElement> nestedTypes = new ArrayList<>();
+    }
+
+    /**
+     * Fields, methods and constructors, and nested types of {@code type}; with
+     * {@code includeInherited} also those inherited from its supertypes.
+     */
+    static Members membersOf(TypeElement type, Elements elements, boolean includeInherited) {
+        List<? extends Element> all = includeInherited
+                ? elements.getAllMembers(type)
+                : type.getEnclosedElements();
+        Members members = new Members();
+        for (Element e : all) {
+            ElementKind k = e.getKind();
+            if (k == ElementKind.FIELD || k == ElementKind.ENUM_CONSTANT) {
+                members.fields.add((VariableElement) e);
+            } else if (k == ElementKind.METHOD || k == ElementKind.CONSTRUCTOR) {
+                members.methods.add((ExecutableElement) e);
+            } else if (isTypeKind(k) && !e.equals(type) && ((TypeElement) e).getNestingKind().isNested()) {
+                members.nestedTypes.add((TypeElement) e);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * The one traversal behind every outline: types with their members and nested
+     * types, sorted by {@link #ORDER}. Members and types reached through several
+     * parents are built once and shared; a type reached again while it is being
+     * built becomes a "(recursive)" entry. Subclasses decide what an entry is and
+     * may reuse previously built types.
+     */
+    abstract static class Traversal<E extends Entry<E>> {
+        private final Elements elements;
+        private final boolean includeInherited;
+        private final Map<Element, E> shared = new IdentityHashMap<>();
+        private final Set<Element> visited = new HashSet<>();
+
+        Traversal(Elements elements, boolean includeInherited) {
+            this.elements = elements;
+            this.includeInherited = includeInherited;
+        }
+
+        /** Entry of {@code type}, built on first use. */
+        final E type(TypeElement type) {
+            E done = shared.get(type);
+            if (done != null) {
+                return done;
+            }
+            if (!visited.add(type)) {
+                return newRecursive(type);
+            }
+            E entry = reuse(type);
+            if (entry == null) {
+                entry = newType(type);
+                Members members = membersOf(type, elements, includeInherited);
+                for (VariableElement f : members.fields) {
+                    entry.children.add(member(f));
+                }
+                for (ExecutableElement m : members.methods) {
+                    entry.children.add(member(m));
+                }
+                for (TypeElement inner : members.nestedTypes) {
+                    entry.children.add(type(inner));
+                }
+                entry.children.sort(ORDER);
+            }
+            shared.put(type, entry);
+            return entry;
+        }
+
+        private E member(Element e) {
+            E done = shared.get(e);
+            if (done == null) {
+                done = newMember(e);
+                shared.put(e, done);
+            }
+            return done;
+        }
+
+        /** Entry for a type, without children; these are added by the traversal. */
+        abstract E newType(TypeElement type);
+
+        /** Entry for a field, enum constant, method or constructor. */
+        abstract E newMember(Element member);
+
+        /** Leaf entry for a type reached again while it is being built. */
+        abstract E newRecursive(TypeElement type);
+
+        /**
+         * Complete entry for {@code type} built earlier, or {@code null} to build
+         * it. Nested types of a reused entry may be rebuilt through {@link #type}.
+         */
+        E reuse(TypeElement type) {
+            return null;
+        }
+    }
+
+    /** Builds the outline of {@code topLevel} for use outside the IDE. */
+    static List<Item> outline(List<? extends TypeElement> topLevel, Elements elements, boolean includeInherited) {
+        Traversal<Item> traversal = new Traversal<Item>(elements, includeInherited) {
+            @Override
+            Item newType(TypeElement type) {
+                return new Item(simpleTypeName(type), type.getKind(), type.getModifiers());
+            }
+
+            @Override
+            Item newMember(Element member) {
+                return new Item(display(member), member.getKind(), member.getModifiers());
+            }
+
+            @Override
+            Item newRecursive(TypeElement type) {
+                return new Item(simpleTypeName(type) + " (recursive)", type.getKind(), type.getModifiers());
+            }
+        };
+        List<Item> result = new ArrayList<>(topLevel.size());
+        for (TypeElement type : topLevel) {
+            result.add(traversal.type(type));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entry if it or any descendant matches, {@code null} otherwise.
+     * The input is never modified: unchanged subtrees are shared, pruned ones copied.
+     */
+    static <E extends Entry<E>> E filtered(E node, MemberQuery q) {
+        boolean selfMatches = q.matches(node);
+
+        List<E> keptChildren = new ArrayList<>();
+        boolean unchanged = true;
+        for (E ch : node.children) {
+            E kept = filtered(ch, q);
+            if (kept != null) {
+                keptChildren.add(kept);
+            }
+            unchanged &= kept == ch;
+        }
+
+        if (!selfMatches && keptChildren.isEmpty()) {
+            return null;
+        }
+        return unchanged ? node : node.withChildren(keptChildren);
+    }
+
+    static boolean isTypeKind(ElementKind k) {
+        return k == ElementKind.CLASS ||
+               k == ElementKind.INTERFACE ||
+               k == ElementKind.ENUM ||
+               k == ElementKind.ANNOTATION_TYPE;
+    }
+
+    private static int score(ElementKind k) {
+        if (isTypeKind(k)) return 0;
+        if (k == ElementKind.FIELD || k == ElementKind.ENUM_CONSTANT) return 1;
+        return 2;
+    }
+
+    /** Display text of a member ({@code name(params): Type}, {@code name: Type}) or type. */
+    static String display(Element e) {
+        switch (e.getKind()) {
+            case METHOD:
+            case CONSTRUCTOR:
+                return formatMethod((ExecutableElement) e);
+            case FIELD:
+            case ENUM_CONSTANT:
+                return formatField((VariableElement) e);
+            default:
+                return e instanceof TypeElement ? simpleTypeName((TypeElement) e) : e.getSimpleName().toString();
+        }
+    }
+
+    private static String formatField(VariableElement f) {
+        String type = simpleType(f.asType());
+        return f.getSimpleName() + ": " + type;
+    }
+
+    private static String formatMethod(ExecutableElement m) {
+        String params = m.getParameters().stream()
+                .map(p -> simpleType(p.asType())) // types only; add " + \" \" + p.getSimpleName()" if you prefer names too
+                .collect(Collectors.joining(", "));
+        String ret = simpleType(m.getReturnType());
+        Name name = m.getSimpleName();
+        if (m.getKind().equals(ElementKind.CONSTRUCTOR)) {
+            name = m.getEnclosingElement().getSimpleName();
+        }
+        return name + "(" + params + "): " + ret;
+    }
+
+    /**
+     * Returns a short display name for a TypeElement, including nesting
+     * (Outer.Inner), but no package.
+     */
+    static String simpleTypeName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element e = type.getEnclosingElement();
+        while (e instanceof TypeElement) {
+            name = ((TypeElement) e).getSimpleName().toString() + "." + name;
+            e = e.getEnclosingElement();
+        }
+        return name;
+    }
+
+    /**
+     * Pretty-print a TypeMirror using only simple names, preserving generics,
+     * arrays, and wildcards.
+     */
+    static String simpleType(TypeMirror tm) {
+        switch (tm.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+            case VOID:
+                return tm.toString(); // primitives & void already short
+            case ARRAY:
+                ArrayType at = (ArrayType) tm;
+                return simpleType(at.getComponentType()) + "[]";
+            case DECLARED: {
+                DeclaredType dt = (DeclaredType) tm;
+                TypeElement te = (TypeElement) dt.asElement();
+                StringBuilder sb = new StringBuilder(simpleTypeName(te));
+
+                var args = dt.getTypeArguments();
+                if (!args.isEmpty()) {
+                    sb.append('<');
+                    for (int i = 0; i < args.size(); i++) {
+                        if (i > 0) {
+                            sb.append(", ");
+                        }
+                        sb.append(simpleType(args.get(i)));
+                    }
+                    sb.append('>');
+                }
+                return sb.toString();
+            }
+            case TYPEVAR:
+            case ERROR:      // unresolved types—fallback to existing ident
+                return tm.toString();
+            case WILDCARD: {
+                WildcardType wt = (WildcardType) tm;
+                StringBuilder sb = new StringBuilder("?");
+                if (wt.getExtendsBound() != null) {
+                    sb.append(" extends ").append(simpleType(wt.getExtendsBound()));
+                } else if (wt.getSuperBound() != null) {
+                    sb.append(" super ").append(simpleType(wt.getSuperBound()));
+                }
+                return sb.toString();
+            }
+            case INTERSECTION:
+            case UNION:
+            default:
+                // Rare in signatures here; fall back to default rendering
+                return tm.toString();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package io.github.s4gh.navigator;
+
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Extracts navigator outlines for many source files without the IDE, e.g. to
+ * pre-build snapshots in CI or to profile {@link OutlineCore}.
+ *
+ * <pre>
+ * OutlineExtractor [-inherited] [-filter query] [-cp classpath] [-sourcepath path]
+ *                  [-batch files] [-threads n] -o out (file.java | dir)...
+ * </pre>
+ *
+ * Sources are split into batches, each compiled by one {@code JavacTask} on a
+ * fork-join pool. A task stops after annotation processing ({@code -proc:only}):
+ * types are entered and member signatures resolved, but no method body is
+ * attributed. Batches are written in input order as they complete.
+ *
+ * <p>A syntax error in one file makes javac skip annotation processing for its
+ * whole task. A batch that was not processed is therefore compiled again file by
+ * file, so only the broken files go without an outline; these are marked
+ * {@link #SKIPPED} in the output.
+ *
+ * <p>Output format, big-endian as written by {@link DataOutputStream}:
+ * <pre>
+ * stream  = magic:i32 "NVOL", version:u8, file*, END:u8
+ * file    = FILE:u8, path:str, flags:u8, count:var, entry{count}
+ * entry   = kind:u8, modifiers:var, display:str, count:var, entry{count}
+ *         | REF:u8, id:var            -- entry already written; ids number the file's entries from 0
+ * str     = id:var                    -- 0: new string follows as writeUTF, gets the next id
+ * var     = unsigned LEB128
+ * </pre>
+ * File flags are {@link #ERRORS} (javac reported errors in the file, its outline
+ * may be incomplete) and {@link #SKIPPED} (the file could not be processed, it
+ * has no outline). Kinds are indexes into {@link #KINDS} plus one, 0 for anything else; modifiers
+ * are {@link MemberQuery#modifierBits}. Entries shared by several parents (see
+ * {@link OutlineCore#outline}) are written once and referenced after that.
+ */
+public final class OutlineExtractor {
+
+    private static final int MAGIC = 0x4E564F4C; // "NVOL"
+    private static final int VERSION = 2;
+    private static final int END = 0;
+    private static final int FILE = 1;
+    private static final int REF = 0xFF;
+
+    static final int ERRORS = 1;
+    static final int SKIPPED = 1 << 1;
+
+    private static final ElementKind[] KINDS = {
+        ElementKind.CLASS, ElementKind.INTERFACE, ElementKind.ENUM, ElementKind.ANNOTATION_TYPE,
+        ElementKind.RECORD, ElementKind.FIELD, ElementKind.ENUM_CONSTANT, ElementKind.METHOD,
+        ElementKind.CONSTRUCTOR
+    };
+
+    private static final int DEFAULT_BATCH = 64;
+
+    private OutlineExtractor() {}
+
+    public static void main(String[] args) throws Exception {
+        boolean inherited = false;
+        String filter = "";
+        String out = null;
+        int batch = DEFAULT_BATCH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> options = new ArrayList<>(List.of("-proc:only", "-nowarn", "-Xlint:none"));
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-inherited" -> inherited = true;
+                    case "-filter" -> filter = args[++i];
+                    case "-o" -> out = args[++i];
+                    case "-batch" -> batch = Math.max(1, Integer.parseInt(args[++i]));
+                    case "-threads" -> threads = Math.max(1, Integer.parseInt(args[++i]));
+                    case "-cp", "-classpath", "-sourcepath" -> {
+                        options.add(args[i]);
+                        options.add(args[++i]);
+                    }
+                    default -> inputs.add(Paths.get(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            out = null;
+        }
+        if (out == null || inputs.isEmpty()) {
+            System.err.println("usage: OutlineExtractor [-inherited] [-filter query] [-cp classpath]"
+                    + " [-sourcepath path] [-batch files] [-threads n] -o out (file.java | dir)...");
+            System.exit(2);
+        }
+
+        List<Path> files = sources(inputs);
+        long t0 = System.nanoTime();
+        Extraction extraction = new Extraction(inherited, MemberQuery.parse(filter), options);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Writer writer = new Writer(Files.newOutputStream(Paths.get(out)))) {
+            List<ForkJoinTask<List<FileOutline>>> tasks = new ArrayList<>();
+            for (int i = 0; i < files.size(); i += batch) {
+                List<Path> chunk = files.subList(i, Math.min(files.size(), i + batch));
+                tasks.add(pool.submit(() -> extraction.extract(chunk)));
+            }
+            int next = 0;
+            int skipped = 0;
+            for (ForkJoinTask<List<FileOutline>> task : tasks) {
+                for (FileOutline outline : task.join()) {
+                    writer.file(files.get(next++).toString(), outline);
+                    if ((outline.flags & SKIPPED) != 0) {
+                        skipped++;
+                    }
+                }
+            }
+            System.err.printf("%d files, %d entries, %d compiler errors, %d files skipped, %d ms%n",
+                    files.size(), writer.entries, extraction.errors.get(), skipped,
+                    (System.nanoTime() - t0) / 1_000_000);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Java sources given directly or found under the given directories, in a stable order. */
+    private static List<Path> sources(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path p : inputs) {
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> walk = Files.walk(p)) {
+                    files.addAll(walk.filter(f -> f.toString().endsWith(".java") && Files.isRegularFile(f))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(p);
+            }
+        }
+        return files;
+    }
+
+    /** Compiles batches of sources and builds their outlines; used from several threads. */
+    private static final class Extraction {
+        final boolean includeInherited;
+        final MemberQuery query;
+        final List<String> options;
+        final AtomicInteger errors = new AtomicInteger();
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        Extraction(boolean includeInherited, MemberQuery query, List<String> options) {
+            this.includeInherited = includeInherited;
+            this.query = query;
+            this.options = options;
+        }
+
+        /**
+         * Outlines of {@code files}, in the same order; empty for files without
+         * types or that could not be processed.
+         */
+        List<FileOutline> extract(List<Path> files) throws IOException {
+            Batch batch = compile(files);
+            if (!batch.processed && files.size() > 1) {
+                List<FileOutline> result = new ArrayList<>(files.size());
+                for (Path f : files) {
+                    result.addAll(extract(List.of(f)));
+                }
+                return result;
+            }
+            errors.addAndGet(batch.errors);
+            List<FileOutline> result = new ArrayList<>(files.size());
+            for (Path f : files) {
+                Path file = f.toAbsolutePath().normalize();
+                int flags = (batch.erroneous.contains(file) ? ERRORS : 0) | (batch.processed ? 0 : SKIPPED);
+                result.add(new FileOutline(batch.byFile.getOrDefault(file, List.of()), flags));
+            }
+            return result;
+        }
+
+        private Batch compile(List<Path> files) throws IOException {
+            Batch batch = new Batch();
+            try (StandardJavaFileManager fm = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+                Iterable<? extends JavaFileObject> units = fm.getJavaFileObjectsFromPaths(files);
+                var task = compiler.getTask(null, fm, d -> {
+                    if (d.getKind() == Diagnostic.Kind.ERROR) {
+                        batch.errors++;
+                        if (d.getSource() != null) {
+                            batch.erroneous.add(Paths.get(d.getSource().toUri()).normalize());
+                        }
+                    }
+                }, options, null, units);
+                task.setProcessors(List.of(new Collector(batch)));
+                task.call();
+            }
+            return batch;
+        }
+
+        /** Builds the outlines in the first processing round, while the compiler state is live. */
+        private final class Collector extends AbstractProcessor {
+            private final Batch batch;
+
+            Collector(Batch batch) {
+                this.batch = batch;
+            }
+
+            @Override
+            public Set<String> getSupportedAnnotationTypes() {
+                return Set.of("*");
+            }
+
+            @Override
+            public SourceVersion getSupportedSourceVersion() {
+                return SourceVersion.latestSupported();
+            }
+
+            @Override
+            public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+                if (round.processingOver()) {
+                    return false;
+                }
+                batch.processed = true;
+                Trees trees = Trees.instance(processingEnv);
+                Map<Path, List<TypeElement>> types = new HashMap<>();
+                for (Element e : round.getRootElements()) {
+                    TreePath path = e instanceof TypeElement ? trees.getPath(e) : null;
+                    if (path != null) {
+                        Path file = Paths.get(path.getCompilationUnit().getSourceFile().toUri()).normalize();
+                        types.computeIfAbsent(file, f -> new ArrayList<>()).add((TypeElement) e);
+                    }
+                }
+                types.forEach((file, topLevel) -> {
+                    List<OutlineCore.Item> outline = new ArrayList<>();
+                    for (OutlineCore.Item item : OutlineCore.outline(
+                            topLevel, processingEnv.getElementUtils(), includeInherited)) {
+                        OutlineCore.Item kept = query.isEmpty() ? item : OutlineCore.filtered(item, query);
+                        if (kept != null) {
+                            outline.add(kept);
+                        }
+                    }
+                    batch.byFile.put(file, outline);
+                });
+                return false;
+            }
+        }
+    }
+
+    /** Result of compiling one batch, filled on the thread that runs its task. */
+    private static final class Batch {
+        final Map<Path, List<OutlineCore.Item>> byFile = new HashMap<>();
+        final Set<Path> erroneous = new HashSet<>();
+        /** Whether javac ran annotation processing, and so the outlines were built. */
+        boolean processed;
+        int errors;
+    }
+
+    /** Outline of one file and its {@link #ERRORS}/{@link #SKIPPED} flags. */
+    private static final class FileOutline {
+        final List<OutlineCore.Item> items;
+        final int flags;
+
+        FileOutline(List<OutlineCore.Item> items, int flags) {
+            this.items = items;
+            this.flags = flags;
+        }
+    }
+
+    /** Streaming encoder of the format described on {@link OutlineExtractor}. */
+    private static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<OutlineCore.Item, Integer> written = new IdentityHashMap<>();
+        int entries;
+
+        Writer(OutputStream os) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        void file(String path, FileOutline outline) throws IOException {
+            written.clear();
+            out.writeByte(FILE);
+            string(path);
+            out.writeByte(outline.flags);
+            var(outline.items.size());
+            for (OutlineCore.Item item : outline.items) {
+                entry(item);
+            }
+        }
+
+        private void entry(OutlineCore.Item item) throws IOException {
+            Integer id = written.get(item);
+            if (id != null) {
+                out.writeByte(REF);
+                var(id);
+                return;
+            }
+            written.put(item, written.size());
+            entries++;
+            out.writeByte(kindCode(item.kind));
+            var(item.modifierBits);
+            string(item.display);
+            var(item.children.size());
+            for (OutlineCore.Item ch : item.children) {
+                entry(ch);
+            }
+        }
+
+        private static int kindCode(ElementKind kind) {
+            for (int i = 0; i < KINDS.length; i++) {
+                if (KINDS[i] == kind) {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        private void string(String s) throws IOException {
+            Integer id = strings.get(s);
+            if (id != null) {
+                var(id);
+                return;
+            }
+            strings.put(s, strings.size() + 1);
+            var(0);
+            out.writeUTF(s);
+        }
+
+        private void var(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeByte(END);
+            out.close();
+        }
+    }
+}
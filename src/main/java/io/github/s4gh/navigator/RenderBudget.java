@@ -0,0 +1,49 @@
+package io.github.s4gh.navigator;
+
+/**
+ * Adaptive bound on how many rows the navigator materializes on the EDT.
+ *
+ * The cost of creating and expanding one row is measured every time the tree
+ * is expanded and kept as a moving average. Group page size and the number of
+ * rows expanded per refresh are derived from it so that a single refresh stays
+ * within {@link #EDT_BUDGET_NANOS}, no matter how large the class is. There are
+ * no minimums above what the budget allows: when rows are expensive, pages get
+ * short rather than the refresh getting slow.
+ */
+final class RenderBudget {
+
+    /** Worst-case EDT time we allow for materializing one refresh. */
+    static final long EDT_BUDGET_NANOS = 80_000_000L;
+
+    private static final int MAX_PAGE = 2_000;
+    private static final int MAX_ROWS = 10_000;
+
+    /** Conservative start value until the first measurement arrives. */
+    private static volatile double nanosPerRow = 40_000;
+
+    private RenderBudget() {}
+
+    /** Rows shown per group before the rest is hidden behind a "more" node. */
+    static int pageSize() {
+        // at least one row, or a "more" node would lead nowhere
+        return clamp((long) (EDT_BUDGET_NANOS / 4 / nanosPerRow), 1, MAX_PAGE);
+    }
+
+    /** Total number of rows that may be expanded in a single refresh. */
+    static int maxRows() {
+        return clamp((long) (EDT_BUDGET_NANOS / nanosPerRow), 1, MAX_ROWS);
+    }
+
+    static void record(int rows, long nanos) {
+        if (rows <= 0 || nanos <= 0) {
+            return;
+        }
+        double sample = (double) nanos / rows;
+        // exponential moving average, new samples weigh 30%
+        nanosPerRow = nanosPerRow * 0.7 + sample * 0.3;
+    }
+
+    private static int clamp(long v, int min, int max) {
+        return (int) Math.max(min, Math.min(max, v));
+    }
+}
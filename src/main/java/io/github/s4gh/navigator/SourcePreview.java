@@ -0,0 +1,143 @@
+package io.github.s4gh.navigator;
+
+import java.awt.BorderLayout;
+import java.awt.CardLayout;
+import java.awt.Font;
+import javax.swing.BorderFactory;
+import javax.swing.JEditorPane;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingConstants;
+import javax.swing.UIManager;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.EditorKit;
+import javax.swing.text.Element;
+import org.netbeans.api.editor.mimelookup.MimeLookup;
+import org.openide.filesystems.FileObject;
+
+/**
+ * Read-only source of the selected member, shown next to the results.
+ *
+ * The text is sliced straight out of the open document using the positions
+ * recorded when the model was built, so moving the selection costs a
+ * {@link Document#render} and a small {@code setText}; nothing is parsed.
+ * Members without recorded positions (declared in other sources, which are
+ * read from compiled signatures) get a short note instead.
+ */
+final class SourcePreview extends JPanel {
+
+    /** Large types are cut here; the preview is for recognizing a member, not reading a file. */
+    private static final int MAX_CHARS = 16 * 1024;
+
+    private final CardLayout cards = new CardLayout();
+    private final JEditorPane source = new JEditorPane();
+    private final JLabel message = new JLabel("", SwingConstants.CENTER);
+
+    private JavaTreeBuilder.NodeData shown;
+
+    SourcePreview() {
+        setLayout(cards);
+        EditorKit kit = MimeLookup.getLookup("text/x-java").lookup(EditorKit.class);
+        if (kit != null) {
+            source.setEditorKit(kit);
+        } else {
+            source.setFont(new Font(Font.MONOSPACED, Font.PLAIN, source.getFont().getSize()));
+        }
+        source.setEditable(false);
+        add(new JScrollPane(source), "source");
+
+        message.setForeground(UIManager.getColor("Label.disabledForeground"));
+        JPanel messagePanel = new JPanel(new BorderLayout());
+        messagePanel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        messagePanel.add(message, BorderLayout.CENTER);
+        add(messagePanel, "message");
+        showMessage("");
+    }
+
+    /**
+     * Shows the source of {@code data} from the model built for {@code fo}.
+     * Must be called on the EDT.
+     */
+    void show(FileObject fo, JavaTreeBuilder.NodeData data) {
+        if (data == null || fo == null) {
+            shown = null;
+            showMessage("");
+            return;
+        }
+        if (data == shown) {
+            return;
+        }
+        shown = data;
+        String text = data.start == null ? null : slice(JavaTreeBuilder.openDocument(fo), data);
+        if (text == null) {
+            // inherited from another source or implicit, like a default constructor
+            showMessage("Not declared in this file");
+            return;
+        }
+        source.setText(text);
+        source.setCaretPosition(0);
+        cards.show(this, "source");
+    }
+
+    private void showMessage(String text) {
+        message.setText(text);
+        cards.show(this, "message");
+    }
+
+    /** Declaration text from the start of its first line, common indentation removed. */
+    private static String slice(Document doc, JavaTreeBuilder.NodeData data) {
+        if (doc == null) {
+            return null;
+        }
+        String[] text = new String[1];
+        boolean[] cut = new boolean[1];
+        doc.render(() -> {
+            int start = data.start.getOffset();
+            int end = data.end.getOffset();
+            if (end <= start) {
+                return; // the declaration was deleted since the model was built
+            }
+            Element root = doc.getDefaultRootElement();
+            int lineStart = root.getElement(root.getElementIndex(start)).getStartOffset();
+            int len = Math.min(end - lineStart, MAX_CHARS);
+            try {
+                text[0] = doc.getText(lineStart, len);
+                cut[0] = len < end - lineStart;
+            } catch (BadLocationException ex) {
+                text[0] = null;
+            }
+        });
+        if (text[0] == null) {
+            return null;
+        }
+        return cut[0] ? dedent(text[0]) + "\n…" : dedent(text[0]);
+    }
+
+    private static String dedent(String text) {
+        String[] lines = text.split("\n", -1);
+        int indent = Integer.MAX_VALUE;
+        for (String line : lines) {
+            int i = 0;
+            while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+                i++;
+            }
+            if (i < line.length()) {
+                indent = Math.min(indent, i);
+            }
+        }
+        if (indent == 0 || indent == Integer.MAX_VALUE) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            sb.append(line, Math.min(indent, line.length()), line.length());
+            if (i < lines.length - 1) {
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,271 @@
+package io.github.s4gh.navigator;
+
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.swing.event.ChangeListener;
+import org.netbeans.api.java.classpath.ClassPath;
+import org.netbeans.api.java.source.ClassIndex;
+import org.netbeans.api.java.source.ClassIndexListener;
+import org.netbeans.api.java.source.ClasspathInfo;
+import org.netbeans.api.java.source.ElementHandle;
+import org.netbeans.api.java.source.JavaSource;
+import org.netbeans.api.java.source.RootsEvent;
+import org.netbeans.api.java.source.TypesEvent;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ui.OpenProjects;
+import org.openide.filesystems.FileObject;
+import org.openide.util.ChangeSupport;
+import org.openide.util.RequestProcessor;
+
+/**
+ * In-memory supertype to subtype index over the source roots of a project.
+ *
+ * The index is built once in the background by resolving every type declared
+ * in the source roots and recording its direct supertypes. Afterwards it is
+ * maintained from {@link ClassIndexListener} events: only added, changed or
+ * removed types are re-resolved, so subtype lookups are plain map walks.
+ * Indexes belong to a project and are dropped when it is closed.
+ */
+final class SubtypeIndex {
+
+    private static final Logger LOG = Logger.getLogger(SubtypeIndex.class.getName());
+    private static final RequestProcessor RP = new RequestProcessor(SubtypeIndex.class);
+    private static final Map<ClassPath, SubtypeIndex> INDEXES = new HashMap<>();
+    /** Retry delay when the class index cannot answer, e.g. during a scan. */
+    private static final int RETRY_MILLIS = 2_000;
+    private static final PropertyChangeListener PROJECTS_LISTENER = evt -> {
+        if (OpenProjects.PROPERTY_OPEN_PROJECTS.equals(evt.getPropertyName())) {
+            RP.post(SubtypeIndex::dropClosedProjects);
+        }
+    };
+    private static boolean projectsListening;
+
+    private final ClasspathInfo cpInfo;
+    private final Project project;
+    private final ChangeSupport cs = new ChangeSupport(this);
+    // kept in a field so it lives exactly as long as the index
+    private final ClassIndexListener listener = new Listener();
+
+    /** Binary name of a supertype to its direct subtypes. */
+    private final Map<String, Set<ElementHandle<TypeElement>>> subtypes = new HashMap<>();
+    /** Binary name of an indexed type to its direct supertypes, for incremental removal. */
+    private final Map<String, List<String>> supertypes = new HashMap<>();
+    private volatile boolean ready;
+    private volatile boolean closed;
+
+    private SubtypeIndex(ClasspathInfo cpInfo, Project project) {
+        this.cpInfo = cpInfo;
+        this.project = project;
+    }
+
+    /**
+     * Index for the source roots {@code fo} belongs to, or {@code null} if it has
+     * none or is not part of a project.
+     */
+    static SubtypeIndex forFile(FileObject fo) {
+        ClassPath src = ClassPath.getClassPath(fo, ClassPath.SOURCE);
+        Project project = FileOwnerQuery.getOwner(fo);
+        if (src == null || project == null) {
+            return null;
+        }
+        synchronized (INDEXES) {
+            if (!projectsListening) {
+                OpenProjects.getDefault().addPropertyChangeListener(PROJECTS_LISTENER);
+                projectsListening = true;
+            }
+            SubtypeIndex index = INDEXES.get(src);
+            if (index == null) {
+                index = new SubtypeIndex(ClasspathInfo.create(fo), project);
+                index.cpInfo.getClassIndex().addClassIndexListener(index.listener);
+                INDEXES.put(src, index);
+                RP.post(index::rebuild);
+            }
+            return index;
+        }
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    void addChangeListener(ChangeListener l) {
+        cs.addChangeListener(l);
+    }
+
+    void removeChangeListener(ChangeListener l) {
+        cs.removeChangeListener(l);
+    }
+
+    /**
+     * All known subtypes of the given type, nearest first, or {@code null}
+     * while the initial build is still running.
+     */
+    synchronized List<ElementHandle<TypeElement>> allSubtypes(String binaryName) {
+        if (!ready) {
+            return null;
+        }
+        Set<ElementHandle<TypeElement>> result = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(binaryName);
+        while (!queue.isEmpty()) {
+            for (ElementHandle<TypeElement> sub : subtypes.getOrDefault(queue.poll(), Set.of())) {
+                if (result.add(sub)) {
+                    queue.add(sub.getBinaryName());
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /** Drops the indexes of projects that are no longer open. */
+    private static void dropClosedProjects() {
+        Set<Project> open = new HashSet<>(Arrays.asList(OpenProjects.getDefault().getOpenProjects()));
+        List<SubtypeIndex> dropped = new ArrayList<>();
+        synchronized (INDEXES) {
+            for (Iterator<SubtypeIndex> it = INDEXES.values().iterator(); it.hasNext(); ) {
+                SubtypeIndex index = it.next();
+                if (!open.contains(index.project)) {
+                    it.remove();
+                    dropped.add(index);
+                }
+            }
+        }
+        for (SubtypeIndex index : dropped) {
+            index.close();
+        }
+    }
+
+    private void close() {
+        closed = true;
+        ready = false;
+        cpInfo.getClassIndex().removeClassIndexListener(listener);
+        synchronized (this) {
+            subtypes.clear();
+            supertypes.clear();
+        }
+        cs.fireChange(); // holders look up a fresh index, if any
+    }
+
+    private void rebuild() {
+        if (closed) {
+            return;
+        }
+        Set<ElementHandle<TypeElement>> all = cpInfo.getClassIndex().getDeclaredTypes(
+                "", ClassIndex.NameKind.PREFIX, EnumSet.of(ClassIndex.SearchScope.SOURCE));
+        if (all == null) {
+            // the query was cancelled, e.g. by a running scan; no event is guaranteed to follow
+            RP.post(this::rebuild, RETRY_MILLIS);
+            return;
+        }
+        Map<ElementHandle<TypeElement>, List<String>> resolved = resolve(all);
+        synchronized (this) {
+            subtypes.clear();
+            supertypes.clear();
+            resolved.forEach(this::add);
+        }
+        ready = true;
+        cs.fireChange();
+    }
+
+    private void update(Iterable<? extends ElementHandle<TypeElement>> types, boolean removed) {
+        if (closed) {
+            return;
+        }
+        List<ElementHandle<TypeElement>> changed = new ArrayList<>();
+        types.forEach(changed::add);
+        Map<ElementHandle<TypeElement>, List<String>> resolved = removed ? Map.of() : resolve(changed);
+        synchronized (this) {
+            for (ElementHandle<TypeElement> h : changed) {
+                remove(h);
+                List<String> supers = resolved.get(h);
+                if (supers != null) {
+                    add(h, supers);
+                }
+            }
+        }
+        cs.fireChange();
+    }
+
+    /** Resolves the handles and returns their direct supertypes' binary names. */
+    private Map<ElementHandle<TypeElement>, List<String>> resolve(Iterable<? extends ElementHandle<TypeElement>> handles) {
+        Map<ElementHandle<TypeElement>, List<String>> result = new HashMap<>();
+        try {
+            JavaSource.create(cpInfo).runUserActionTask(cc -> {
+                Elements elements = cc.getElements();
+                for (ElementHandle<TypeElement> h : handles) {
+                    TypeElement te = h.resolve(cc);
+                    if (te == null) {
+                        continue;
+                    }
+                    List<String> supers = new ArrayList<>();
+                    addSuper(elements, te.getSuperclass(), supers);
+                    for (TypeMirror itf : te.getInterfaces()) {
+                        addSuper(elements, itf, supers);
+                    }
+                    result.put(h, supers);
+                }
+            }, true);
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Cannot index subtypes", ex);
+        }
+        return result;
+    }
+
+    private static void addSuper(Elements elements, TypeMirror tm, List<String> supers) {
+        if (tm.getKind() == TypeKind.DECLARED) {
+            TypeElement st = (TypeElement) ((DeclaredType) tm).asElement();
+            supers.add(elements.getBinaryName(st).toString());
+        }
+    }
+
+    private void add(ElementHandle<TypeElement> type, List<String> supers) {
+        supertypes.put(type.getBinaryName(), supers);
+        for (String s : supers) {
+            subtypes.computeIfAbsent(s, k -> new HashSet<>()).add(type);
+        }
+    }
+
+    private void remove(ElementHandle<TypeElement> type) {
+        List<String> supers = supertypes.remove(type.getBinaryName());
+        if (supers == null) {
+            return;
+        }
+        for (String s : supers) {
+            Set<ElementHandle<TypeElement>> subs = subtypes.get(s);
+            if (subs != null) {
+                subs.remove(type);
+                if (subs.isEmpty()) {
+                    subtypes.remove(s);
+                }
+            }
+        }
+    }
+
+    private final class Listener implements ClassIndexListener {
+        @Override public void typesAdded(TypesEvent event) { RP.post(() -> update(event.getTypes(), false)); }
+        @Override public void typesRemoved(TypesEvent event) { RP.post(() -> update(event.getTypes(), true)); }
+        @Override public void typesChanged(TypesEvent event) { RP.post(() -> update(event.getTypes(), false)); }
+        @Override public void rootsAdded(RootsEvent event) { RP.post(SubtypeIndex.this::rebuild); }
+        @Override public void rootsRemoved(RootsEvent event) { RP.post(SubtypeIndex.this::rebuild); }
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.s4gh.navigator;
+
+import java.util.Set;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberQueryTest {
+
+    private static OutlineCore.Item field(String display, Modifier... modifiers) {
+        return new OutlineCore.Item(display, ElementKind.FIELD, Set.of(modifiers));
+    }
+
+    private static OutlineCore.Item method(String display, Modifier... modifiers) {
+        return new OutlineCore.Item(display, ElementKind.METHOD, Set.of(modifiers));
+    }
+
+    @Test
+    void blankQueryIsEmpty() {
+        assertSame(MemberQuery.EMPTY, MemberQuery.parse(null));
+        assertSame(MemberQuery.EMPTY, MemberQuery.parse("   "));
+        assertTrue(MemberQuery.parse("").matches(method("anything(): void")));
+    }
+
+    @Test
+    void plainTextIsCaseInsensitiveSubstring() {
+        MemberQuery q = MemberQuery.parse("FOO");
+        assertTrue(q.matches(method("getFoo(): int")));
+        assertTrue(q.matches(field("foo: String")));
+        assertFalse(q.matches(method("getBar(): int")));
+    }
+
+    @Test
+    void plainTextWithSpacesIsOneSubstring() {
+        MemberQuery q = MemberQuery.parse("static int");
+        assertFalse(q.matches(method("count(): int", Modifier.STATIC)));
+        assertTrue(q.matches(method("static int")));
+    }
+
+    @Test
+    void fieldPrefixWithModifier() {
+        MemberQuery q = MemberQuery.parse("f: private");
+        assertTrue(q.matches(field("name: String", Modifier.PRIVATE)));
+        assertFalse(q.matches(field("name: String", Modifier.PUBLIC)));
+        assertFalse(q.matches(method("name(): String", Modifier.PRIVATE)));
+    }
+
+    @Test
+    void methodNameModifierAndReturnType() {
+        MemberQuery q = MemberQuery.parse("m:get static ret:Optional");
+        assertTrue(q.matches(method("getName(): Optional<String>", Modifier.PUBLIC, Modifier.STATIC)));
+        assertFalse(q.matches(method("getName(): Optional<String>", Modifier.PUBLIC)));
+        assertFalse(q.matches(method("getName(): String", Modifier.STATIC)));
+        assertFalse(q.matches(method("findName(): Optional<String>", Modifier.STATIC)));
+        assertFalse(q.matches(field("getter: Optional<String>", Modifier.STATIC)));
+    }
+
+    @Test
+    void returnTypeMatchesWholeSimpleNamesOnly() {
+        assertTrue(MemberQuery.parse("ret:string").matches(method("names(): List<String>")));
+        assertFalse(MemberQuery.parse("ret:str").matches(method("names(): List<String>")));
+        // parameter types are not the return type
+        assertFalse(MemberQuery.parse("ret:string").matches(method("put(String): void")));
+    }
+
+    @Test
+    void severalKindPrefixesAreOred() {
+        MemberQuery q = MemberQuery.parse("m: f: size");
+        assertTrue(q.matches(method("size(): int")));
+        assertTrue(q.matches(field("size: int")));
+        assertFalse(q.matches(new OutlineCore.Item("Size", ElementKind.CLASS, Set.of())));
+    }
+
+    @Test
+    void unknownPrefixIsPlainText() {
+        // not structured at all: the whole query is one substring
+        assertFalse(MemberQuery.parse("foo:int").matches(field("foo: int")));
+        // inside a structured query the token is a word of its own
+        MemberQuery q = MemberQuery.parse("m:get x:y");
+        assertFalse(q.matches(method("getX(): int")));
+        assertTrue(q.matches(method("getx:y(): int")));
+    }
+
+    @Test
+    void typeTokensOfMethodsAndFields() {
+        assertArrayEquals(new String[] {"map", "string", "list", "integer"},
+                MemberQuery.typeTokens("all(int): map<string, list<integer>>", MemberQuery.KIND_METHOD));
+        assertArrayEquals(new String[] {"void"},
+                MemberQuery.typeTokens("put(string, int): void", MemberQuery.KIND_METHOD));
+        assertArrayEquals(new String[] {"string"},
+                MemberQuery.typeTokens("names: string[]", MemberQuery.KIND_FIELD));
+        assertArrayEquals(new String[0],
+                MemberQuery.typeTokens("outer.inner", MemberQuery.KIND_TYPE));
+    }
+
+    @Test
+    void rankPrefersNameStartThenHump() {
+        MemberQuery q = MemberQuery.parse("name");
+        assertEquals(0, q.rank(method("nameOf(): String")));
+        assertEquals(1, q.rank(method("getName(): String")));
+        assertEquals(1, q.rank(field("first_name: String")));
+        assertEquals(2, q.rank(method("rename(): void")));
+    }
+
+    @Test
+    void rankWhenLowerCasingChangesLength() {
+        // "İ" lower-cases to two chars, so displayLower is longer than display
+        OutlineCore.Item item = method("İİİİİİfoo(): int");
+        assertTrue(MemberQuery.parse("foo").matches(item));
+        assertEquals(2, MemberQuery.parse("foo").rank(item));
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.s4gh.navigator;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutlineExtractorTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void createSourceDir() throws IOException {
+        Files.createDirectories(dir.resolve("src"));
+    }
+
+    @Test
+    void outlinesAreSortedByKindThenName() throws Exception {
+        write("A.java", "class A {\n  int x;\n  void a(String s) {}\n  static class In { int y; }\n}\n");
+
+        Map<String, DecodedFile> files = extract();
+
+        DecodedFile a = files.get("A.java");
+        assertEquals(0, a.flags);
+        assertEquals(List.of("A"), displays(a.entries));
+        Entry type = a.entries.get(0);
+        assertEquals(1, type.kind); // CLASS
+        assertEquals(List.of("A.In", "x: int", "A(): void", "a(String): void"), displays(type.children));
+        assertEquals(List.of("y: int", "In(): void"), displays(type.children.get(0).children));
+    }
+
+    @Test
+    void brokenFileDoesNotDropTheRestOfItsBatch() throws Exception {
+        write("A.java", "class A {\n  void a() {}\n}\n");
+        write("Broken.java", "class Broken {\n  void m( {\n}\n");
+        write("C.java", "interface C {\n  String name();\n}\n");
+
+        Map<String, DecodedFile> files = extract();
+
+        assertEquals(OutlineExtractor.ERRORS | OutlineExtractor.SKIPPED, files.get("Broken.java").flags);
+        assertTrue(files.get("Broken.java").entries.isEmpty());
+        assertEquals(0, files.get("A.java").flags);
+        assertEquals(List.of("A(): void", "a(): void"), displays(files.get("A.java").entries.get(0).children));
+        assertEquals(0, files.get("C.java").flags);
+        assertEquals(List.of("name(): String"), displays(files.get("C.java").entries.get(0).children));
+    }
+
+    @Test
+    void inheritedMembersAreWrittenOnceAndReferenced() throws Exception {
+        write("P.java", "class P {\n  int p;\n}\nclass Q extends P {\n}\n");
+
+        Map<String, DecodedFile> files = extract("-inherited");
+
+        Map<String, Entry> types = files.get("P.java").entries.stream()
+                .collect(Collectors.toMap(e -> e.display, e -> e));
+        Entry fromP = child(types.get("P"), "p: int");
+        Entry fromQ = child(types.get("Q"), "p: int");
+        assertSame(fromP, fromQ);
+        assertSame(child(types.get("P"), "hashCode(): int"), child(types.get("Q"), "hashCode(): int"));
+    }
+
+    @Test
+    void filterKeepsMatchesAndTheirEnclosingTypes() throws Exception {
+        write("A.java", "class A {\n  int a;\n  void a(String s) {}\n  void b() {}\n}\n");
+
+        Map<String, DecodedFile> files = extract("-filter", "m:a");
+
+        DecodedFile a = files.get("A.java");
+        assertEquals(List.of("A"), displays(a.entries));
+        assertEquals(List.of("a(String): void"), displays(a.entries.get(0).children));
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(dir.resolve("src").resolve(name), content);
+    }
+
+    private Map<String, DecodedFile> extract(String... options) throws Exception {
+        Path out = dir.resolve("out.bin");
+        List<String> args = new ArrayList<>(List.of(options));
+        args.addAll(List.of("-o", out.toString(), dir.resolve("src").toString()));
+        OutlineExtractor.main(args.toArray(new String[0]));
+        return read(out);
+    }
+
+    private static List<String> displays(List<Entry> entries) {
+        return entries.stream().map(e -> e.display).collect(Collectors.toList());
+    }
+
+    private static Entry child(Entry type, String display) {
+        return type.children.stream().filter(e -> e.display.equals(display)).findFirst().orElseThrow();
+    }
+
+    /** Reads the format documented on {@link OutlineExtractor}, keyed by file name. */
+    private static Map<String, DecodedFile> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            assertEquals(0x4E564F4C, in.readInt());
+            assertEquals(2, in.readUnsignedByte());
+            Decoder decoder = new Decoder(in);
+            Map<String, DecodedFile> files = new HashMap<>();
+            int tag;
+            while ((tag = in.readUnsignedByte()) != 0) {
+                assertEquals(1, tag);
+                String path = decoder.string();
+                int flags = in.readUnsignedByte();
+                decoder.entries.clear();
+                List<Entry> entries = decoder.list();
+                files.put(Path.of(path).getFileName().toString(), new DecodedFile(flags, entries));
+            }
+            return files;
+        }
+    }
+
+    private static final class Decoder {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        final List<Entry> entries = new ArrayList<>();
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        List<Entry> list() throws IOException {
+            int count = var();
+            List<Entry> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(entry());
+            }
+            return result;
+        }
+
+        Entry entry() throws IOException {
+            int kind = in.readUnsignedByte();
+            if (kind == 0xFF) {
+                return entries.get(var());
+            }
+            Entry e = new Entry(kind, var(), string());
+            entries.add(e);
+            e.children.addAll(list());
+            return e;
+        }
+
+        String string() throws IOException {
+            int id = var();
+            if (id != 0) {
+                return strings.get(id - 1);
+            }
+            String s = in.readUTF();
+            strings.add(s);
+            return s;
+        }
+
+        int var() throws IOException {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    private static final class DecodedFile {
+        final int flags;
+        final List<Entry> entries;
+
+        DecodedFile(int flags, List<Entry> entries) {
+            this.flags = flags;
+            this.entries = entries;
+        }
+    }
+
+    private static final class Entry {
+        final int kind;
+        final int modifiers;
+        final String display;
+        final List<Entry> children = new ArrayList<>();
+
+        Entry(int kind, int modifiers, String display) {
+            this.kind = kind;
+            this.modifiers = modifiers;
+            this.display = display;
+        }
+    }
+}